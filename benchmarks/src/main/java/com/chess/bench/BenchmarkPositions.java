@@ -0,0 +1,28 @@
+package com.chess.bench;
+
+import com.chess.ChessBoard;
+import com.chess.Position;
+
+// Shared starting points for the benchmarks
+final class BenchmarkPositions {
+    static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    static final String IN_CHECK = "rnb1kbnr/pppp1ppp/8/4p3/5PPq/8/PPPPP2P/RNBQKBNR w KQkq - 1 3";
+
+    // Giuoco Piano after 1.e4 e5 2.Nf3 Nc6 3.Bc4 Bc5, white to move
+    private static final String[] OPENING = {"e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "f8c5"};
+
+    private BenchmarkPositions() {
+    }
+
+    static ChessBoard openingBoard() {
+        ChessBoard board = new ChessBoard(null);
+        for (String move : OPENING) {
+            board.makeMove(move);
+        }
+        return board;
+    }
+
+    static Position kiwipete() {
+        return Position.fromFen(KIWIPETE);
+    }
+}
@@ -0,0 +1,36 @@
+package com.chess.bench;
+
+import com.chess.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// King.isInCheck on a quiet middlegame position and on one where the king is in check
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class CheckDetectionBenchmark {
+    private King whiteKing;
+    private Position quiet;
+    private Position inCheck;
+
+    @Setup
+    public void setUp() {
+        whiteKing = new King(true);
+        quiet = BenchmarkPositions.kiwipete();
+        inCheck = Position.fromFen(BenchmarkPositions.IN_CHECK);
+    }
+
+    @Benchmark
+    public boolean isInCheckQuiet() {
+        return whiteKing.isInCheck(quiet);
+    }
+
+    @Benchmark
+    public boolean isInCheckChecked() {
+        return whiteKing.isInCheck(inCheck);
+    }
+}
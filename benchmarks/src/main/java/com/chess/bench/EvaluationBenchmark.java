@@ -0,0 +1,33 @@
+package com.chess.bench;
+
+import com.chess.Evaluation;
+import com.chess.Position;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Static evaluation of Kiwipete from the incrementally kept terms against a full board scan
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class EvaluationBenchmark {
+    private Position kiwipete;
+
+    @Setup
+    public void setUp() {
+        kiwipete = BenchmarkPositions.kiwipete();
+    }
+
+    @Benchmark
+    public int incremental() {
+        return Evaluation.evaluate(kiwipete);
+    }
+
+    @Benchmark
+    public int fromScratch() {
+        return Evaluation.evaluateFromScratch(kiwipete);
+    }
+}
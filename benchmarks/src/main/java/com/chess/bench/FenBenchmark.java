@@ -0,0 +1,38 @@
+package com.chess.bench;
+
+import com.chess.Position;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// FEN parsing into a new Position against parsing in place into a reused one, as EpdReader does
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class FenBenchmark {
+    private final Position reused = new Position();
+
+    @Setup
+    public void setUp() {
+        reused.setFen(BenchmarkPositions.KIWIPETE);
+    }
+
+    @Benchmark
+    public Position fromFen() {
+        return Position.fromFen(BenchmarkPositions.KIWIPETE);
+    }
+
+    @Benchmark
+    public Position setFen() {
+        reused.setFen(BenchmarkPositions.KIWIPETE);
+        return reused;
+    }
+
+    @Benchmark
+    public String toFen() {
+        return reused.toFen();
+    }
+}
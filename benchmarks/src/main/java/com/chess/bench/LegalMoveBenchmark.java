@@ -0,0 +1,44 @@
+package com.chess.bench;
+
+import com.chess.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Full legal move generation, through ChessBoard and directly on the position
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class LegalMoveBenchmark {
+    private ChessBoard board;
+    private Position kiwipete;
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setUp() {
+        board = BenchmarkPositions.openingBoard();
+        kiwipete = BenchmarkPositions.kiwipete();
+    }
+
+    @Benchmark
+    public int boardGetValidMoves() {
+        board.getValidMoves(5, 5, moves); // knight on f3
+        return moves.size();
+    }
+
+    @Benchmark
+    public int boardGetAllLegalMoves() {
+        board.getAllLegalMoves(true, moves);
+        return moves.size();
+    }
+
+    @Benchmark
+    public int generateLegalKiwipete() {
+        moves.clear();
+        MoveGenerator.generateLegal(kiwipete, moves);
+        return moves.size();
+    }
+}
@@ -0,0 +1,43 @@
+package com.chess.bench;
+
+import com.chess.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Point;
+import java.util.concurrent.TimeUnit;
+
+// One make/undo pair, through ChessBoard and directly on the position
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class MakeUndoBenchmark {
+    private ChessBoard board;
+    private Position position;
+    private final Point from = new Point(5, 5); // Nf3
+    private final Point to = new Point(6, 3);   // Ng5
+    private int move;
+
+    @Setup
+    public void setUp() {
+        board = BenchmarkPositions.openingBoard();
+        position = BenchmarkPositions.kiwipete();
+        move = Move.encode(36, 53, Move.CAPTURE); // Nxf7
+    }
+
+    @Benchmark
+    public ChessBoard boardMakeUndo() {
+        board.makeMove(from, to);
+        board.undoMove();
+        return board;
+    }
+
+    @Benchmark
+    public Position positionMakeUnmake() {
+        position.makeMove(move);
+        position.unmakeMove();
+        return position;
+    }
+}
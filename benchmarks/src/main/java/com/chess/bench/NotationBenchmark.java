@@ -0,0 +1,35 @@
+package com.chess.bench;
+
+import com.chess.ChessBoard;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Point;
+import java.util.concurrent.TimeUnit;
+
+// FEN and algebraic notation output from ChessBoard
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class NotationBenchmark {
+    private ChessBoard board;
+    private final Point from = new Point(5, 5); // f3
+    private final Point to = new Point(6, 3);   // g5
+
+    @Setup
+    public void setUp() {
+        board = BenchmarkPositions.openingBoard();
+    }
+
+    @Benchmark
+    public String convertToFEN() {
+        return board.convertToFEN();
+    }
+
+    @Benchmark
+    public String convertToAlgebraicNotation() {
+        return board.convertToAlgebraicNotation(from, to);
+    }
+}
@@ -0,0 +1,43 @@
+package com.chess.bench;
+
+import com.chess.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// ChessPiece.getLegalMoves for one white piece of each type in the Kiwipete position
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class PieceMoveGenerationBenchmark {
+    @Param({"pawn", "knight", "bishop", "rook", "queen", "king"})
+    public String pieceType;
+
+    private Position position;
+    private ChessPiece piece;
+    private int square;
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setUp() {
+        position = BenchmarkPositions.kiwipete();
+        switch (pieceType) {
+            case "pawn": piece = new Pawn(true); square = 35; break;     // d5
+            case "knight": piece = new Knight(true); square = 36; break; // e5
+            case "bishop": piece = new Bishop(true); square = 12; break; // e2
+            case "rook": piece = new Rook(true); square = 0; break;      // a1
+            case "queen": piece = new Queen(true); square = 21; break;   // f3
+            default: piece = new King(true); square = 4; break;          // e1
+        }
+    }
+
+    @Benchmark
+    public int getLegalMoves() {
+        moves.clear();
+        piece.getLegalMoves(position, square, moves);
+        return moves.size();
+    }
+}
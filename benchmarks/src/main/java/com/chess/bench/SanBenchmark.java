@@ -0,0 +1,60 @@
+package com.chess.bench;
+
+import com.chess.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// SAN for every legal move of Kiwipete (48 moves): written into a reused StringBuilder with one
+// shared legal list, parsed back, and the per-move toSan convenience that generates its own list
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class SanBenchmark {
+    private Position kiwipete;
+    private final MoveList legal = new MoveList();
+    private final StringBuilder san = new StringBuilder(512);
+    private final int[] starts = new int[MoveList.MAX_MOVES + 1];
+
+    @Setup
+    public void setUp() {
+        kiwipete = BenchmarkPositions.kiwipete();
+        MoveGenerator.generateLegal(kiwipete, legal);
+    }
+
+    @Benchmark
+    public int appendAll() {
+        san.setLength(0);
+        for (int i = 0; i < legal.size(); i++) {
+            San.append(kiwipete, legal.get(i), legal, san);
+        }
+        return san.length();
+    }
+
+    @Benchmark
+    public int roundTrip() {
+        san.setLength(0);
+        for (int i = 0; i < legal.size(); i++) {
+            starts[i] = san.length();
+            San.append(kiwipete, legal.get(i), legal, san);
+        }
+        starts[legal.size()] = san.length();
+        int checksum = 0;
+        for (int i = 0; i < legal.size(); i++) {
+            checksum += San.parse(kiwipete, san, starts[i], starts[i + 1], legal);
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public int toSanAll() {
+        int length = 0;
+        for (int i = 0; i < legal.size(); i++) {
+            length += San.toSan(kiwipete, legal.get(i)).length();
+        }
+        return length;
+    }
+}
@@ -0,0 +1,114 @@
+package com.chess;
+
+// Precomputed attack tables for the bitboard engine. Squares use the a1 = 0 ... h8 = 63 layout.
+public final class Bitboards {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_4 = RANK_1 << 24;
+    public static final long RANK_5 = RANK_1 << 32;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+    public static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL; // b1, a2, ...
+
+    // Ray directions: N, NE, E, SE, S, SW, W, NW
+    static final int NORTH = 0, NORTH_EAST = 1, EAST = 2, SOUTH_EAST = 3;
+    static final int SOUTH = 4, SOUTH_WEST = 5, WEST = 6, NORTH_WEST = 7;
+    private static final int[] RANK_STEP = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] FILE_STEP = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+    static final long[][] RAYS = new long[8][64];
+    // Squares strictly between two aligned squares, and the whole line through them (0 when not aligned)
+    static final long[][] BETWEEN = new long[64][64];
+    static final long[][] LINE = new long[64][64];
+
+    static {
+        int[] knightRanks = {2, 2, 1, 1, -1, -1, -2, -2};
+        int[] knightFiles = {-1, 1, -2, 2, -2, 2, -1, 1};
+        for (int sq = 0; sq < 64; sq++) {
+            int rank = sq >>> 3;
+            int file = sq & 7;
+            for (int i = 0; i < 8; i++) {
+                KNIGHT_ATTACKS[sq] |= bit(rank + knightRanks[i], file + knightFiles[i]);
+                KING_ATTACKS[sq] |= bit(rank + RANK_STEP[i], file + FILE_STEP[i]);
+            }
+            PAWN_ATTACKS[Position.WHITE][sq] = bit(rank + 1, file - 1) | bit(rank + 1, file + 1);
+            PAWN_ATTACKS[Position.BLACK][sq] = bit(rank - 1, file - 1) | bit(rank - 1, file + 1);
+            for (int dir = 0; dir < 8; dir++) {
+                int r = rank + RANK_STEP[dir];
+                int f = file + FILE_STEP[dir];
+                while (r >= 0 && r < 8 && f >= 0 && f < 8) {
+                    RAYS[dir][sq] |= 1L << (r * 8 + f);
+                    r += RANK_STEP[dir];
+                    f += FILE_STEP[dir];
+                }
+            }
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            for (int dir = 0; dir < 8; dir++) {
+                long line = RAYS[dir][sq] | RAYS[(dir + 4) & 7][sq] | (1L << sq);
+                long ray = RAYS[dir][sq];
+                while (ray != 0) {
+                    int target = Long.numberOfTrailingZeros(ray);
+                    ray &= ray - 1;
+                    BETWEEN[sq][target] = RAYS[dir][sq] & RAYS[(dir + 4) & 7][target];
+                    LINE[sq][target] = line;
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    private static long bit(int rank, int file) {
+        if (rank < 0 || rank > 7 || file < 0 || file > 7) {
+            return 0L;
+        }
+        return 1L << (rank * 8 + file);
+    }
+
+    // Attacks along one ray, stopping at (and including) the first blocker
+    private static long rayAttacks(int dir, int sq, long occupied) {
+        long ray = RAYS[dir][sq];
+        long blockers = ray & occupied;
+        if (blockers == 0) {
+            return ray;
+        }
+        // N, NE, E and NW rays grow towards higher squares, the rest towards lower ones
+        int blocker = (dir == NORTH || dir == NORTH_EAST || dir == EAST || dir == NORTH_WEST)
+            ? Long.numberOfTrailingZeros(blockers)
+            : 63 - Long.numberOfLeadingZeros(blockers);
+        return ray ^ RAYS[dir][blocker];
+    }
+
+    public static long rookAttacks(int sq, long occupied) {
+        return rayAttacks(NORTH, sq, occupied) | rayAttacks(EAST, sq, occupied)
+            | rayAttacks(SOUTH, sq, occupied) | rayAttacks(WEST, sq, occupied);
+    }
+
+    public static long bishopAttacks(int sq, long occupied) {
+        return rayAttacks(NORTH_EAST, sq, occupied) | rayAttacks(SOUTH_EAST, sq, occupied)
+            | rayAttacks(SOUTH_WEST, sq, occupied) | rayAttacks(NORTH_WEST, sq, occupied);
+    }
+
+    public static long queenAttacks(int sq, long occupied) {
+        return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+    }
+
+    public static long knightAttacks(int sq) {
+        return KNIGHT_ATTACKS[sq];
+    }
+
+    public static long kingAttacks(int sq) {
+        return KING_ATTACKS[sq];
+    }
+
+    public static long pawnAttacks(int color, int sq) {
+        return PAWN_ATTACKS[color][sq];
+    }
+}
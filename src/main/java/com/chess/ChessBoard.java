@@ -10,27 +10,33 @@ import java.net.URL;
 
 public class ChessBoard extends JPanel {
     private static final int BOARD_SIZE = 8;
+    private static final Color LIGHT_SQUARE = new Color(240, 217, 181);
+    private static final Color DARK_SQUARE = new Color(181, 136, 99);
+    private static final Color SELECTED_SQUARE = new Color(130, 151, 105, 150);
+    private static final Color LEGAL_MOVE = new Color(173, 216, 230, 150); // Light blue with transparency
+    static final Color CHECK = new Color(255, 0, 0, 100); // Also used by ChessGame's check highlight
     private ChessPiece[][] board;
+    private GameCore core;
+    private Position position;
     private ChessPiece selectedPiece;
     private Point selectedSquare;
-    private boolean isWhiteTurn;
-    private Set<Point> legalMoves;
+    private final MoveList legalMoves = new MoveList();
+    // Reused for the SAN of every move shown in the history
+    private final StringBuilder san = new StringBuilder(8);
     private ChessGame game;
     private JTextArea moveHistoryArea;
     private int moveNumber;
     private Color[][] squareColors;
-    private Stack<MoveState> moveHistory;
-    private int halfmoveClock;
-    private int fullmoveNumber;
     private int squareSize;
+    // Piece sprites pre-rendered at spriteSize, indexed by piece code; rebuilt on resize
+    private final Image[] sprites = new Image[12];
+    private int spriteSize;
+    private boolean inputEnabled = true;
 
     public ChessBoard(ChessGame game) {
         this.game = game;
         board = new ChessPiece[BOARD_SIZE][BOARD_SIZE];
         squareColors = new Color[BOARD_SIZE][BOARD_SIZE];
-        moveHistory = new Stack<>();
-        halfmoveClock = 0;
-        fullmoveNumber = 1;
         initializeBoard();
         addMouseListener(new ChessMouseListener());
         moveNumber = 1;
@@ -40,45 +46,86 @@ public class ChessBoard extends JPanel {
             public void componentResized(ComponentEvent e) {
                 // Calculate new square size based on the smaller dimension to maintain square aspect ratio
                 squareSize = Math.min(getWidth(), getHeight()) / BOARD_SIZE;
+                rebuildSprites();
                 repaint();
             }
         });
     }
 
     private void initializeBoard() {
-        isWhiteTurn = true;
-        legalMoves = new HashSet<>();
-        
-        // Initialize pawns
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            board[1][i] = new Pawn(false);
-            board[6][i] = new Pawn(true);
+        legalMoves.clear();
+        core = new GameCore();
+        position = core.getPosition();
+        syncBoardFromPosition();
+    }
+
+    // The grid is a view over the position, filled with the shared piece flyweights.
+    // Returns the squares whose piece changed, as a bitboard.
+    private long syncBoardFromPosition() {
+        long changed = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = position.pieceAt(sq);
+            ChessPiece updated = piece == Position.NO_PIECE ? null : ChessPiece.of(piece);
+            int row = Position.rowOf(sq);
+            int col = Position.colOf(sq);
+            if (board[row][col] != updated) {
+                board[row][col] = updated;
+                changed |= 1L << sq;
+            }
+        }
+        return changed;
+    }
+
+    // Scales every sprite once for the current square size so painting never rescales
+    private void rebuildSprites() {
+        if (squareSize <= 0 || squareSize == spriteSize) {
+            return;
+        }
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        for (int piece = 0; piece < sprites.length; piece++) {
+            Image source = PieceImages.get(piece);
+            if (source == null) {
+                sprites[piece] = null;
+                continue;
+            }
+            Image sprite = config != null
+                ? config.createCompatibleImage(squareSize, squareSize, Transparency.TRANSLUCENT)
+                : new java.awt.image.BufferedImage(squareSize, squareSize, java.awt.image.BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = (Graphics2D) sprite.getGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, squareSize, squareSize, null);
+            g.dispose();
+            sprites[piece] = sprite;
+        }
+        spriteSize = squareSize;
+    }
+
+    // Schedules a repaint of just the given squares (a bitboard) instead of the whole board
+    private void repaintSquares(long squares) {
+        while (squares != 0) {
+            int sq = Long.numberOfTrailingZeros(squares);
+            squares &= squares - 1;
+            repaint(new Rectangle(Position.colOf(sq) * squareSize, Position.rowOf(sq) * squareSize,
+                squareSize, squareSize));
         }
+    }
 
-        // Initialize other pieces
-        board[0][0] = new Rook(false);
-        board[0][7] = new Rook(false);
-        board[7][0] = new Rook(true);
-        board[7][7] = new Rook(true);
-
-        board[0][1] = new Knight(false);
-        board[0][6] = new Knight(false);
-        board[7][1] = new Knight(true);
-        board[7][6] = new Knight(true);
-
-        board[0][2] = new Bishop(false);
-        board[0][5] = new Bishop(false);
-        board[7][2] = new Bishop(true);
-        board[7][5] = new Bishop(true);
-
-        board[0][3] = new Queen(false);
-        board[0][4] = new King(false);
-        board[7][3] = new Queen(true);
-        board[7][4] = new King(true);
+    // Squares covered by the selection and legal move highlights
+    private long selectionSquares() {
+        long squares = 0;
+        if (selectedSquare != null) {
+            squares |= 1L << Position.toSquare(selectedSquare.y, selectedSquare.x);
+        }
+        for (int i = 0; i < legalMoves.size(); i++) {
+            squares |= 1L << Move.to(legalMoves.get(i));
+        }
+        return squares;
     }
 
     @Override
     protected void paintComponent(Graphics g) {
+        long frameStart = Diagnostics.metricsEnabled() ? System.nanoTime() : 0;
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
         
@@ -87,55 +134,67 @@ public class ChessBoard extends JPanel {
 
         g2d.setColor(Color.LIGHT_GRAY); // Add a background color to the board panel
         g2d.fillRect(0, 0, getWidth(), getHeight());
-
-        // Draw board
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                boolean isLight = (row + col) % 2 == 0;
-                g2d.setColor(isLight ? new Color(240, 217, 181) : new Color(181, 136, 99));
-                g2d.fillRect(col * squareSize, row * squareSize, squareSize, squareSize);
-            }
+        if (squareSize <= 0) {
+            return;
         }
 
-        // Highlight squares with custom colors (like check)
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
+        // Only the squares inside the clip need painting; moves repaint just the squares they touch
+        Rectangle clip = g2d.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int firstRow = Math.max(0, clip.y / squareSize);
+        int lastRow = Math.min(BOARD_SIZE - 1, (clip.y + clip.height - 1) / squareSize);
+        int firstCol = Math.max(0, clip.x / squareSize);
+        int lastCol = Math.min(BOARD_SIZE - 1, (clip.x + clip.width - 1) / squareSize);
+        long selection = selectionSquares();
+        int selected = selectedSquare != null ? Position.toSquare(selectedSquare.y, selectedSquare.x) : Position.NO_SQUARE;
+        int piecesDrawn = 0;
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                int x = col * squareSize;
+                int y = row * squareSize;
+                int sq = Position.toSquare(row, col);
+                g2d.setColor((row + col) % 2 == 0 ? LIGHT_SQUARE : DARK_SQUARE);
+                g2d.fillRect(x, y, squareSize, squareSize);
+
+                // Highlight squares with custom colors (like check)
                 if (squareColors[row][col] != null) {
                     g2d.setColor(squareColors[row][col]);
-                    g2d.fillRect(col * squareSize, row * squareSize, 
-                                squareSize, squareSize);
+                    g2d.fillRect(x, y, squareSize, squareSize);
+                }
+                if (sq == selected) {
+                    g2d.setColor(SELECTED_SQUARE);
+                    g2d.fillRect(x, y, squareSize, squareSize);
+                } else if ((selection & (1L << sq)) != 0) {
+                    g2d.setColor(LEGAL_MOVE);
+                    g2d.fillRect(x, y, squareSize, squareSize);
                 }
-            }
-        }
-
-        // Highlight selected square
-        if (selectedSquare != null) {
-            g2d.setColor(new Color(130, 151, 105, 150));
-            g2d.fillRect(selectedSquare.x * squareSize, selectedSquare.y * squareSize, 
-                        squareSize, squareSize);
-        }
-
-        // Highlight legal moves with light blue squares
-        g2d.setColor(new Color(173, 216, 230, 150)); // Light blue with transparency
-        for (Point move : legalMoves) {
-            g2d.fillRect(move.x * squareSize, move.y * squareSize,
-                        squareSize, squareSize);
-        }
 
-        // Draw pieces last so they appear on top
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
                 ChessPiece piece = board[row][col];
                 if (piece != null) {
-                    piece.draw(g2d, col * squareSize, row * squareSize, squareSize);
+                    Image sprite = spriteSize == squareSize ? sprites[piece.getCode()] : null;
+                    if (sprite != null) {
+                        piece.draw(g2d, sprite, x, y);
+                    } else {
+                        piece.draw(g2d, x, y, squareSize);
+                    }
+                    piecesDrawn++;
                 }
             }
         }
+        if (frameStart != 0) {
+            Diagnostics.recordFrame(System.nanoTime() - frameStart, piecesDrawn);
+        }
     }
 
     private class ChessMouseListener extends MouseAdapter {
         @Override
         public void mouseClicked(MouseEvent e) {
+            if (!inputEnabled) {
+                return;
+            }
             int col = e.getX() / squareSize;
             int row = e.getY() / squareSize;
             
@@ -147,225 +206,104 @@ public class ChessBoard extends JPanel {
 
     private void handleSquareClick(int row, int col) {
         ChessPiece clickedPiece = board[row][col];
+        long highlighted = selectionSquares();
         
         if (selectedPiece == null) {
-            if (clickedPiece != null && clickedPiece.isWhite() == isWhiteTurn) {
+            if (clickedPiece != null && clickedPiece.isWhite() == isWhiteTurn()) {
                 selectedPiece = clickedPiece;
                 selectedSquare = new Point(col, row);
-                legalMoves = getValidMoves(selectedPiece, row, col);
-                repaint();
+                getValidMoves(row, col, legalMoves);
+                repaintSquares(highlighted | selectionSquares());
             }
         } else {
-            Point move = new Point(col, row);
-            if (legalMoves.contains(move)) {
-                makeMove(selectedSquare, move);
+            int from = Position.toSquare(selectedSquare.y, selectedSquare.x);
+            if (legalMoves.find(from, Position.toSquare(row, col)) != Move.NONE) {
+                makeMove(selectedSquare, new Point(col, row));
                 selectedPiece = null;
                 selectedSquare = null;
                 legalMoves.clear();
-                repaint();
-            } else if (clickedPiece != null && clickedPiece.isWhite() == isWhiteTurn) {
+                repaintSquares(highlighted);
+                if (game != null) {
+                    game.onPlayerMove();
+                }
+            } else if (clickedPiece != null && clickedPiece.isWhite() == isWhiteTurn()) {
                 selectedPiece = clickedPiece;
                 selectedSquare = new Point(col, row);
-                legalMoves = getValidMoves(selectedPiece, row, col);
-                repaint();
+                getValidMoves(row, col, legalMoves);
+                repaintSquares(highlighted | selectionSquares());
             } else {
                 selectedPiece = null;
                 selectedSquare = null;
                 legalMoves.clear();
-                repaint();
+                repaintSquares(highlighted);
             }
         }
     }
 
-    private Set<Point> getValidMoves(ChessPiece piece, int row, int col) {
-        Set<Point> allMoves = piece.getLegalMoves(board, row, col);
-        Set<Point> validMoves = new HashSet<>();
+    // Legal moves of the piece on the given square; the position is only read, never mutated
+    public void getValidMoves(int row, int col, MoveList moves) {
+        moves.clear();
+        MoveList allMoves = core.legalMoves();
         
-        for (Point move : allMoves) {
-            if (isMoveValid(row, col, move.y, move.x)) {
-                validMoves.add(move);
+        int from = Position.toSquare(row, col);
+        for (int i = 0; i < allMoves.size(); i++) {
+            int move = allMoves.get(i);
+            if (Move.from(move) == from) {
+                moves.add(move);
             }
         }
-        
-        return validMoves;
     }
 
-    private boolean isMoveValid(int fromRow, int fromCol, int toRow, int toCol) {
-        // Make a temporary move
-        ChessPiece tempPiece = board[toRow][toCol];
-        board[toRow][toCol] = board[fromRow][fromCol];
-        board[fromRow][fromCol] = null;
-        
-        // Check if the king is in check after the move
-        boolean isInCheck = false;
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece instanceof King && piece.isWhite() == isWhiteTurn) {
-                    isInCheck = ((King)piece).isInCheck(board, row, col);
-                    break;
-                }
-            }
-        }
-        
-        // Undo the temporary move
-        board[fromRow][fromCol] = board[toRow][toCol];
-        board[toRow][toCol] = tempPiece;
-        
-        return !isInCheck;
+    public void makeMove(Point from, Point to) {
+        // Pawns always promote to a queen from the board UI
+        makeMove(from, to, Position.QUEEN);
     }
 
-    public void makeMove(Point from, Point to) {
-        // Save the current state for undo
-        MoveState state = new MoveState(
-            board[from.y][from.x],
-            board[to.y][to.x],
-            from,
-            to,
-            isWhiteTurn,
-            Pawn.getLastDoubleMovePawn()
-        );
-        moveHistory.push(state);
-
-        String moveNotation = convertToAlgebraicNotation(from, to);
-        if (game != null) {
-            game.addMoveToHistory(moveNotation);
-        }
-        
-        // Update halfmove clock
-        if (board[from.y][from.x] instanceof Pawn || board[to.y][to.x] != null) {
-            halfmoveClock = 0;
-        } else {
-            halfmoveClock++;
-        }
-        
-        // Update fullmove number
-        if (!isWhiteTurn) {
-            fullmoveNumber++;
-        }
-        
-        // Handle en passant
-        if (board[from.y][from.x] instanceof Pawn && Math.abs(to.x - from.x) == 1 && board[to.y][to.x] == null) {
-            // This is an en passant capture
-            board[from.y][to.x] = null; // Remove the captured pawn
+    public void makeMove(Point from, Point to, int promotionType) {
+        int move = core.findMove(Position.toSquare(from.y, from.x), Position.toSquare(to.y, to.x), promotionType);
+        if (move == Move.NONE) {
+            return; // Illegal in the current position
         }
-        
-        // Handle castling
-        if (board[from.y][from.x] instanceof King && Math.abs(to.x - from.x) == 2) {
-            // This is a castling move
-            int rookCol = to.x > from.x ? 7 : 0;
-            int newRookCol = to.x > from.x ? to.x - 1 : to.x + 1;
-            board[to.y][newRookCol] = board[to.y][rookCol];
-            board[to.y][rookCol] = null;
-            if (board[to.y][newRookCol] instanceof Rook) {
-                ((Rook)board[to.y][newRookCol]).setHasMoved();
-            }
-        }
-        
-        // Move the piece
-        board[to.y][to.x] = board[from.y][from.x];
-        board[from.y][from.x] = null;
-        
-        // Handle pawn promotion
-        if (board[to.y][to.x] instanceof Pawn && (to.y == 0 || to.y == 7)) {
-            board[to.y][to.x] = new Queen(board[to.y][to.x].isWhite());
-        }
-        
-        // Update piece state
-        if (board[to.y][to.x] instanceof Pawn) {
-            ((Pawn)board[to.y][to.x]).setHasMoved();
-            if (Math.abs(to.y - from.y) == 2) {
-                Pawn.setLastDoubleMovePawn(to);
-            } else {
-                Pawn.clearLastDoubleMovePawn();
-            }
-        } else if (board[to.y][to.x] instanceof King) {
-            ((King)board[to.y][to.x]).setHasMoved();
-        } else if (board[to.y][to.x] instanceof Rook) {
-            ((Rook)board[to.y][to.x]).setHasMoved();
+
+        if (game != null) {
+            san.setLength(0);
+            San.append(position, move, core.legalMoves(), san);
+            game.addMoveToHistory(san.toString());
         }
 
-        // Check for check after the move
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece instanceof King) {
-                    boolean isInCheck = ((King)piece).isInCheck(board, row, col);
-                    if (isInCheck) {
-                        highlightSquare(row, col, new Color(255, 0, 0, 100)); // Red highlight for check
-                    } else {
-                        highlightSquare(row, col, null); // Clear highlight
-                    }
-                }
-            }
+        // Clear any check highlight left on the kings' current squares
+        long dirty = 0;
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            int kingSquare = position.kingSquare(color);
+            squareColors[Position.rowOf(kingSquare)][Position.colOf(kingSquare)] = null;
+            dirty |= 1L << kingSquare;
         }
 
-        isWhiteTurn = !isWhiteTurn;
-        repaint();
-    }
+        core.play(move);
+        dirty |= syncBoardFromPosition();
 
-    public String convertToAlgebraicNotation(Point from, Point to) {
-        StringBuilder notation = new StringBuilder();
-        ChessPiece piece = board[from.y][from.x];
-        
-        // Handle castling
-        if (piece instanceof King && Math.abs(to.x - from.x) == 2) {
-            return to.x > from.x ? "O-O" : "O-O-O";
-        }
-        
-        // Add piece letter (except for pawns)
-        if (!(piece instanceof Pawn)) {
-            if (piece instanceof Knight) notation.append("N");
-            else if (piece instanceof Bishop) notation.append("B");
-            else if (piece instanceof Rook) notation.append("R");
-            else if (piece instanceof Queen) notation.append("Q");
-            else if (piece instanceof King) notation.append("K");
-        }
-        
-        // Add capture symbol
-        if (board[to.y][to.x] != null || (piece instanceof Pawn && from.x != to.x)) {
-            if (piece instanceof Pawn) {
-                notation.append((char)('a' + from.x));
+        // Check for check after the move, using the cached king squares
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            int kingSquare = position.kingSquare(color);
+            if (position.isInCheck(color)) {
+                squareColors[Position.rowOf(kingSquare)][Position.colOf(kingSquare)] = CHECK; // Red highlight for check
+                dirty |= 1L << kingSquare;
             }
-            notation.append("x");
         }
-        
-        // Add destination square
-        notation.append((char)('a' + to.x));
-        notation.append(8 - to.y);
-        
-        return notation.toString();
-    }
 
-    private boolean isCheck() {
-        // Find the king of the current player
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece instanceof King && piece.isWhite() == isWhiteTurn) {
-                    return ((King)piece).isInCheck(board, row, col);
-                }
-            }
-        }
-        return false;
+        repaintSquares(dirty);
     }
 
-    private boolean isCheckmate() {
-        if (!isCheck()) return false;
-        
-        // Try all possible moves for all pieces
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece != null && piece.isWhite() == isWhiteTurn) {
-                    Set<Point> moves = piece.getLegalMoves(board, row, col);
-                    if (!moves.isEmpty()) {
-                        return false; // Found a legal move
-                    }
-                }
-            }
+    // SAN of the move between two squares (pawns promoting to a queen), with disambiguation and
+    // check or mate suffix; throws IllegalArgumentException if the move is illegal
+    public String convertToAlgebraicNotation(Point from, Point to) {
+        int move = core.findMove(Position.toSquare(from.y, from.x), Position.toSquare(to.y, to.x), Position.QUEEN);
+        if (move == Move.NONE) {
+            throw new IllegalArgumentException("Illegal move from " + from + " to " + to);
         }
-        return true; // No legal moves found
+        san.setLength(0);
+        San.append(position, move, core.legalMoves(), san);
+        return san.toString();
     }
 
     public void makeMove(int fromRow, int fromCol, int toRow, int toCol) {
@@ -374,83 +312,65 @@ public class ChessBoard extends JPanel {
         makeMove(from, to);
     }
 
+    // Accepts coordinate notation ("e2e4", "e7e8q") or SAN ("Nf3", "exd5", "O-O");
+    // moves that do not parse or are illegal are ignored
     public void makeMove(String move) {
-        if (move.length() != 4) {
+        if (move.length() >= 4 && move.length() <= 5 && isSquare(move, 0) && isSquare(move, 2)) {
+            int promotionType = move.length() == 5 ? "nbrq".indexOf(move.charAt(4)) + Position.KNIGHT : Position.QUEEN;
+            if (promotionType < Position.KNIGHT) {
+                return;
+            }
+            int fromCol = move.charAt(0) - 'a';
+            int fromRow = 8 - (move.charAt(1) - '0');
+            int toCol = move.charAt(2) - 'a';
+            int toRow = 8 - (move.charAt(3) - '0');
+            makeMove(new Point(fromCol, fromRow), new Point(toCol, toRow), promotionType);
             return;
         }
-        int fromCol = move.charAt(0) - 'a';
-        int fromRow = 8 - (move.charAt(1) - '0');
-        int toCol = move.charAt(2) - 'a';
-        int toRow = 8 - (move.charAt(3) - '0');
-        makeMove(fromRow, fromCol, toRow, toCol);
+        try {
+            makeMove(San.parse(position, move, core.legalMoves()));
+        } catch (IllegalArgumentException e) {
+            // Not a legal SAN move in this position
+        }
+    }
+
+    // Plays a packed move (see Move), e.g. one resolved from SAN or chosen by the engine
+    public void makeMove(int move) {
+        Point from = new Point(Position.colOf(Move.from(move)), Position.rowOf(Move.from(move)));
+        Point to = new Point(Position.colOf(Move.to(move)), Position.rowOf(Move.to(move)));
+        makeMove(from, to, Move.isPromotion(move) ? Move.promotionType(move) : Position.QUEEN);
+    }
+
+    private static boolean isSquare(String move, int index) {
+        char file = move.charAt(index);
+        char rank = move.charAt(index + 1);
+        return file >= 'a' && file <= 'h' && rank >= '1' && rank <= '8';
+    }
+
+    // Ignore board clicks, e.g. while the engine is thinking
+    public void setInputEnabled(boolean enabled) {
+        inputEnabled = enabled;
     }
 
     public void highlightSquare(int row, int col, Color color) {
         squareColors[row][col] = color;
-        repaint();
+        repaintSquares(1L << Position.toSquare(row, col));
     }
 
     public ChessPiece[][] getBoard() {
         return board;
     }
 
+    // Takes back the last move. The position's undo log restores everything the move changed:
+    // castled rooks, en passant captures, promotions, castling rights and both clocks.
     public void undoMove() {
-        if (moveHistory.isEmpty()) {
+        if (!core.undo()) {
             return;
         }
-
-        MoveState state = moveHistory.pop();
-        
-        // Restore the board state
-        board[state.from.y][state.from.x] = state.movedPiece;
-        board[state.to.y][state.to.x] = state.capturedPiece;
-        
-        // Restore piece states
-        if (state.movedPiece instanceof Pawn) {
-            ((Pawn)state.movedPiece).resetHasMoved();
-        } else if (state.movedPiece instanceof King) {
-            ((King)state.movedPiece).resetHasMoved();
-        } else if (state.movedPiece instanceof Rook) {
-            ((Rook)state.movedPiece).resetHasMoved();
-        }
-        
-        // Restore en passant state
-        Pawn.setLastDoubleMovePawn(state.lastDoubleMovePawn);
-        
-        // Restore turn
-        isWhiteTurn = state.isWhiteTurn;
-        
-        repaint();
-    }
-
-    private static class MoveState {
-        ChessPiece movedPiece;
-        ChessPiece capturedPiece;
-        Point from;
-        Point to;
-        boolean isWhiteTurn;
-        Point lastDoubleMovePawn;
-
-        MoveState(ChessPiece movedPiece, ChessPiece capturedPiece, Point from, Point to, 
-                 boolean isWhiteTurn, Point lastDoubleMovePawn) {
-            this.movedPiece = movedPiece;
-            this.capturedPiece = capturedPiece;
-            this.from = from;
-            this.to = to;
-            this.isWhiteTurn = isWhiteTurn;
-            this.lastDoubleMovePawn = lastDoubleMovePawn;
-        }
-    }
-
-    private static class Move {
-        int fromRow, fromCol, toRow, toCol;
-        
-        Move(int fromRow, int fromCol, int toRow, int toCol) {
-            this.fromRow = fromRow;
-            this.fromCol = fromCol;
-            this.toRow = toRow;
-            this.toCol = toCol;
+        if (game != null) {
+            game.removeLastMoveFromHistory();
         }
+        repaintSquares(syncBoardFromPosition());
     }
 
     public ChessPiece getPieceAt(int row, int col) {
@@ -461,111 +381,59 @@ public class ChessBoard extends JPanel {
     }
 
     public boolean isWhiteTurn() {
-        return isWhiteTurn;
+        return position.sideToMove() == Position.WHITE;
     }
 
-    public String convertToFEN() {
-        StringBuilder fen = new StringBuilder();
-        
-        // Board position
-        for (int row = 0; row < 8; row++) {
-            int emptyCount = 0;
-            for (int col = 0; col < 8; col++) {
-                ChessPiece piece = getPieceAt(row, col);
-                if (piece == null) {
-                    emptyCount++;
-                } else {
-                    if (emptyCount > 0) {
-                        fen.append(emptyCount);
-                        emptyCount = 0;
-                    }
-                    char pieceChar = piece.getSymbol();
-                    fen.append(pieceChar);
-                }
-            }
-            if (emptyCount > 0) {
-                fen.append(emptyCount);
-            }
-            if (row < 7) {
-                fen.append('/');
-            }
-        }
-        
-        // Active color
-        fen.append(' ').append(isWhiteTurn ? 'w' : 'b');
-        
-        // Castling availability
-        StringBuilder castling = new StringBuilder();
-        if (canCastleKingside(true)) castling.append('K');
-        if (canCastleQueenside(true)) castling.append('Q');
-        if (canCastleKingside(false)) castling.append('k');
-        if (canCastleQueenside(false)) castling.append('q');
-        fen.append(' ').append(castling.length() > 0 ? castling : '-');
-        
-        // En passant target square
-        fen.append(' ').append(getEnPassantTarget() != null ? 
-            convertToAlgebraicNotation(getEnPassantTarget()) : '-');
-        
-        // Halfmove clock and fullmove number
-        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
-        
-        return fen.toString();
+    // 64-bit Zobrist key of the current position, for caches and repetition checks
+    public long getZobristKey() {
+        return position.key();
     }
 
-    private String convertToAlgebraicNotation(Point point) {
-        char file = (char)('a' + point.x);
-        char rank = (char)('8' - point.y);
-        return "" + file + rank;
+    public Position getPosition() {
+        return position;
     }
 
-    private Point getEnPassantTarget() {
-        // Find the last double-moved pawn
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                ChessPiece piece = getPieceAt(row, col);
-                if (piece instanceof Pawn) {
-                    Pawn pawn = (Pawn) piece;
-                    Point lastDoubleMove = pawn.getLastDoubleMovePawn();
-                    if (lastDoubleMove != null && lastDoubleMove.x == col && lastDoubleMove.y == row) {
-                        return lastDoubleMove;
-                    }
-                }
-            }
-        }
-        return null;
+    // Headless rules core behind this board
+    public GameCore getCore() {
+        return core;
     }
 
-    private boolean canCastleKingside(boolean isWhite) {
-        int row = isWhite ? 7 : 0;
-        ChessPiece king = board[row][4];
-        ChessPiece rook = board[row][7];
-        return king instanceof King && rook instanceof Rook &&
-               !((King)king).hasMoved() && !((Rook)rook).hasMoved() &&
-               board[row][5] == null && board[row][6] == null;
+    // Immutable copy of the game state that can be handed to other threads
+    public PositionSnapshot getSnapshot() {
+        return position.snapshot();
     }
 
-    private boolean canCastleQueenside(boolean isWhite) {
-        int row = isWhite ? 7 : 0;
-        ChessPiece king = board[row][4];
-        ChessPiece rook = board[row][0];
-        return king instanceof King && rook instanceof Rook &&
-               !((King)king).hasMoved() && !((Rook)rook).hasMoved() &&
-               board[row][1] == null && board[row][2] == null && board[row][3] == null;
+    public String convertToFEN() {
+        return position.toFen();
     }
 
-    public java.util.List<Move> getAllLegalMoves(boolean forWhite) {
-        java.util.List<Move> moves = new java.util.ArrayList<>();
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece != null && piece.isWhite() == forWhite) {
-                    Set<Point> legalMoves = piece.getLegalMoves(board, row, col);
-                    for (Point move : legalMoves) {
-                        moves.add(new Move(row, col, move.y, move.x));
-                    }
-                }
-            }
+    // Replaces the game with one starting from the FEN position; an invalid FEN throws
+    // IllegalArgumentException and leaves the board unchanged
+    public void loadFen(String fen) {
+        core.load(fen);
+        legalMoves.clear();
+        selectedPiece = null;
+        selectedSquare = null;
+        for (Color[] row : squareColors) {
+            Arrays.fill(row, null);
+        }
+        int kingSquare = position.kingSquare(position.sideToMove());
+        if (position.isInCheck(position.sideToMove())) {
+            squareColors[Position.rowOf(kingSquare)][Position.colOf(kingSquare)] = CHECK;
+        }
+        syncBoardFromPosition();
+        repaint();
+    }
+
+    // Fills the caller's list with every legal move for the given color; empty when it is not on move
+    public void getAllLegalMoves(boolean forWhite, MoveList moves) {
+        moves.clear();
+        if (forWhite != isWhiteTurn()) {
+            return;
+        }
+        MoveList legal = core.legalMoves();
+        for (int i = 0; i < legal.size(); i++) {
+            moves.add(legal.get(i));
         }
-        return moves;
     }
 } 
\ No newline at end of file
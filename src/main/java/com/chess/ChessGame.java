@@ -2,16 +2,46 @@ package com.chess;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.datatransfer.StringSelection;
 import java.awt.event.*;
 import java.util.ArrayList;
 import javax.swing.Timer;
 import javax.swing.plaf.synth.SynthLookAndFeel;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import java.net.URL; // Import URL for resource loading
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
 
 public class ChessGame extends JFrame {
     private static final int BOARD_SIZE = 8;
+    private static final int ENGINE_MAX_DEPTH = 64;
+    private static final long ENGINE_MOVE_TIME_MS = 2000;
+    private static final int ENGINE_TABLE_MB = 64;
+    // Lazy SMP thread count, overridable with -Dchess.engine.threads=N
+    private static final int ENGINE_THREADS = Math.max(1,
+        Integer.getInteger("chess.engine.threads", Runtime.getRuntime().availableProcessors()));
     private ChessBoard board;
+    private GameMode gameMode = GameMode.PVP;
+    // Created by the first engine move, so PvP games never allocate the table or the threads
+    private ParallelSearch engineSearch;
+    private SwingWorker<SearchResult, Void> engineWorker;
+    // Polyglot opening book, from -Dchess.book=file (default book.bin); null when there is none
+    private final OpeningBook book = openBook(System.getProperty("chess.book", "book.bin"));
+    private final Random bookRandom = new Random();
+    // Endgame tablebases, from -Dchess.tablebases=dir (default tablebases); null when there are none
+    private final Tablebases tablebases = openTablebases(System.getProperty("chess.tablebases", "tablebases"));
     private ArrayList<String> movesHistory;
+    // Document offset where each history entry starts, so undo can remove just the last one
+    private ArrayList<Integer> historyOffsets = new ArrayList<>();
+    // Number of the first history line, and 1 when the game started with black to move
+    private int historyFirstMove = 1;
+    private int historyPlyOffset;
     private JPanel controlPanel;
     private JTextArea moveHistoryArea;
     private Point selectedSquare;
@@ -39,6 +69,10 @@ public class ChessGame extends JFrame {
         JButton startButton = new JButton("Start Game");
         startButton.addActionListener(e -> resetGame());
         controlPanel.add(startButton);
+
+        JButton hintButton = new JButton("Hint");
+        hintButton.addActionListener(e -> showHint());
+        controlPanel.add(hintButton);
         
         // Set a preferred size for the main frame
         setPreferredSize(new Dimension(900, 600));
@@ -50,10 +84,10 @@ public class ChessGame extends JFrame {
                 ImageIcon icon = new ImageIcon(iconURL);
                 setIconImage(icon.getImage());
             } else {
-                System.err.println("Application icon not found: /chess_icon.png");
+                Diagnostics.log(Diagnostics.Level.ERROR, "Application icon not found: /chess_icon.png");
             }
         } catch (Exception e) {
-            System.err.println("Error loading application icon: " + e.getMessage());
+            Diagnostics.log(Diagnostics.Level.ERROR, "Error loading application icon: " + e.getMessage());
             e.printStackTrace();
         }
         
@@ -67,7 +101,38 @@ public class ChessGame extends JFrame {
         JMenuItem newGameItem = new JMenuItem("New Game");
         newGameItem.addActionListener(e -> resetGame());
         gameMenu.add(newGameItem);
+        JMenuItem undoItem = new JMenuItem("Undo Move");
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        undoItem.addActionListener(e -> undoMove());
+        gameMenu.add(undoItem);
+        gameMenu.addSeparator();
+        JMenuItem openItem = new JMenuItem("Open PGN...");
+        openItem.addActionListener(e -> openPgn());
+        gameMenu.add(openItem);
+        JMenuItem saveItem = new JMenuItem("Save PGN...");
+        saveItem.addActionListener(e -> savePgn());
+        gameMenu.add(saveItem);
+        gameMenu.addSeparator();
+        JMenuItem loadFenItem = new JMenuItem("Load FEN...");
+        loadFenItem.addActionListener(e -> loadFen());
+        gameMenu.add(loadFenItem);
+        JMenuItem copyFenItem = new JMenuItem("Copy FEN");
+        copyFenItem.addActionListener(e -> Toolkit.getDefaultToolkit().getSystemClipboard()
+            .setContents(new StringSelection(board.convertToFEN()), null));
+        gameMenu.add(copyFenItem);
         menuBar.add(gameMenu);
+
+        JMenu modeMenu = new JMenu("Mode");
+        ButtonGroup modeGroup = new ButtonGroup();
+        JRadioButtonMenuItem pvpItem = new JRadioButtonMenuItem("Player vs Player", true);
+        pvpItem.addActionListener(e -> handleGameModeChange("PVP"));
+        JRadioButtonMenuItem pveItem = new JRadioButtonMenuItem("Player vs Engine");
+        pveItem.addActionListener(e -> handleGameModeChange("PVE"));
+        modeGroup.add(pvpItem);
+        modeGroup.add(pveItem);
+        modeMenu.add(pvpItem);
+        modeMenu.add(pveItem);
+        menuBar.add(modeMenu);
         setJMenuBar(menuBar);
     }
 
@@ -111,6 +176,7 @@ public class ChessGame extends JFrame {
         boardPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20)); // Padding around the board
 
         board = new ChessBoard(this);
+        board.getCore().setTablebases(tablebases);
         boardPanel.add(board, BorderLayout.CENTER);
         
         // Add algebraic notation labels
@@ -144,7 +210,124 @@ public class ChessGame extends JFrame {
     }
 
     private void handleGameModeChange(String mode) {
-        System.out.println("Game mode changed, but only Player vs Player is supported.");
+        gameMode = GameMode.valueOf(mode);
+        startEngineMoveIfNeeded();
+    }
+
+    // Called by the board after a move entered with the mouse
+    public void onPlayerMove() {
+        startEngineMoveIfNeeded();
+    }
+
+    // In Player vs Engine the engine plays black. It searches a snapshot of the position on a
+    // background thread so the EDT keeps painting, then plays its move back on the EDT.
+    private void startEngineMoveIfNeeded() {
+        if (gameMode != GameMode.PVE || board.isWhiteTurn() || engineWorker != null || board.getCore().isOver()) {
+            return;
+        }
+        final ChessBoard targetBoard = board;
+        final PositionSnapshot snapshot = targetBoard.getSnapshot();
+        final ParallelSearch search = engineSearch();
+        targetBoard.setInputEnabled(false);
+        engineWorker = new SwingWorker<SearchResult, Void>() {
+            @Override
+            protected SearchResult doInBackground() {
+                Position position = snapshot.toPosition();
+                int bookMove = book != null ? book.pickMove(position, bookRandom) : Move.NONE;
+                if (bookMove != Move.NONE) {
+                    return new SearchResult(new int[] {bookMove}, 0, 0, 0, 0);
+                }
+                return search.search(position, ENGINE_MAX_DEPTH, ENGINE_MOVE_TIME_MS);
+            }
+
+            @Override
+            protected void done() {
+                if (engineWorker == this) {
+                    engineWorker = null;
+                }
+                targetBoard.setInputEnabled(true);
+                if (isCancelled() || targetBoard != board) {
+                    return; // The game was reset while the engine was thinking
+                }
+                try {
+                    SearchResult result = get();
+                    if (result != null && result.getBestMove() != Move.NONE) {
+                        int move = result.getBestMove();
+                        Point from = new Point(Position.colOf(Move.from(move)), Position.rowOf(Move.from(move)));
+                        Point to = new Point(Position.colOf(Move.to(move)), Position.rowOf(Move.to(move)));
+                        int promotionType = Move.isPromotion(move) ? Move.promotionType(move) : Position.QUEEN;
+                        targetBoard.makeMove(from, to, promotionType);
+                    }
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    Diagnostics.log(Diagnostics.Level.ERROR, "Engine search failed: " + e.getMessage());
+                }
+            }
+        };
+        engineWorker.execute();
+    }
+
+    private static OpeningBook openBook(String file) {
+        java.nio.file.Path path = java.nio.file.Paths.get(file);
+        if (!java.nio.file.Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            OpeningBook book = OpeningBook.open(path);
+            Diagnostics.log(Diagnostics.Level.INFO, "Opening book " + file + ": " + book.size() + " entries");
+            return book;
+        } catch (IOException e) {
+            Diagnostics.log(Diagnostics.Level.ERROR, "Could not open opening book " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Tablebases openTablebases(String directory) {
+        java.nio.file.Path path = java.nio.file.Paths.get(directory);
+        return java.nio.file.Files.isDirectory(path) ? new Tablebases(path) : null;
+    }
+
+    // Lists the book moves for the side to move with how often the book plays each; out of the
+    // book, gives the tablebase move when the endgame is covered
+    private void showHint() {
+        Position position = board.getPosition();
+        MoveList moves = new MoveList();
+        int[] weights = new int[MoveList.MAX_MOVES];
+        int total = book != null ? book.probe(position, moves, weights) : 0;
+        int best = moves.isEmpty() && tablebases != null ? tablebases.bestMove(position) : Move.NONE;
+        String text;
+        if (!moves.isEmpty()) {
+            StringBuilder sb = new StringBuilder("Book moves:\n");
+            for (int i = 0; i < moves.size(); i++) {
+                sb.append(San.toSan(position, moves.get(i)))
+                    .append(String.format("  %.0f%%%n", 100.0 * weights[i] / Math.max(1, total)));
+            }
+            text = sb.toString();
+        } else if (best != Move.NONE) {
+            int mate = board.getCore().forcedMateDistance();
+            text = "Tablebase move: " + San.toSan(position, best)
+                + (mate > 0 ? " (mate in " + (mate + 1) / 2 + ")" : mate < 0 ? " (mated in " + (-mate) / 2 + ")" : " (draw)");
+        } else if (book == null) {
+            text = "No opening book loaded (see -Dchess.book).";
+        } else {
+            text = "This position is not in the opening book.";
+        }
+        JOptionPane.showMessageDialog(this, text, "Hint", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private ParallelSearch engineSearch() {
+        if (engineSearch == null) {
+            engineSearch = new ParallelSearch(ENGINE_THREADS, new TranspositionTable(ENGINE_TABLE_MB));
+            engineSearch.setTablebases(tablebases);
+        }
+        return engineSearch;
+    }
+
+    private void stopEngine() {
+        if (engineWorker != null) {
+            engineSearch.stop();
+            engineWorker.cancel(false);
+            engineWorker = null;
+        }
     }
 
     private void initializeTimers() {
@@ -156,50 +339,168 @@ public class ChessGame extends JFrame {
     }
 
     private void checkForCheck() {
-        ChessPiece[][] boardState = board.getBoard();
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                ChessPiece piece = boardState[i][j];
-                if (piece instanceof King) {
-                    King king = (King) piece;
-                    if (king.isInCheck(boardState, i, j)) {
-                        // Highlight the king's square in red
-                        board.highlightSquare(i, j, Color.RED);
-                    } else {
-                        board.highlightSquare(i, j, null);
-                    }
-                }
+        Position position = board.getPosition();
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            int kingSquare = position.kingSquare(color);
+            int row = Position.rowOf(kingSquare);
+            int col = Position.colOf(kingSquare);
+            if (position.isInCheck(color)) {
+                board.highlightSquare(row, col, ChessBoard.CHECK);
+            } else {
+                board.highlightSquare(row, col, null);
             }
         }
     }
 
+    // Appends one move to the history text instead of rebuilding it: a white move adds a new
+    // "N. move" line, a black move is inserted before that line's newline
     public void addMoveToHistory(String move) {
+        Document document = moveHistoryArea.getDocument();
+        int ply = movesHistory.size() + historyPlyOffset;
+        try {
+            if (ply % 2 == 0) {
+                historyOffsets.add(document.getLength());
+                document.insertString(document.getLength(), (historyFirstMove + ply / 2) + ". " + move + "\n", null);
+            } else if (movesHistory.isEmpty()) {
+                // A game set up with black to move starts with an "N... move" line
+                historyOffsets.add(document.getLength());
+                document.insertString(document.getLength(), historyFirstMove + "... " + move + "\n", null);
+            } else {
+                historyOffsets.add(document.getLength() - 1);
+                document.insertString(document.getLength() - 1, " " + move, null);
+            }
+        } catch (BadLocationException e) {
+            Diagnostics.log(Diagnostics.Level.ERROR, "Move history out of sync: " + e.getMessage());
+        }
         movesHistory.add(move);
-        updateMoveHistoryDisplay();
+        moveHistoryArea.setCaretPosition(document.getLength());
     }
 
-    private void updateMoveHistoryDisplay() {
-        StringBuilder history = new StringBuilder();
-        for (int i = 0; i < movesHistory.size(); i += 2) {
-            history.append(String.format("%d. %s", (i/2 + 1), movesHistory.get(i)));
-            if (i + 1 < movesHistory.size()) {
-                history.append(String.format(" %s\n", movesHistory.get(i + 1)));
-            } else {
-                history.append("\n");
+    // Removes only the last history entry, e.g. after an undo
+    public void removeLastMoveFromHistory() {
+        if (movesHistory.isEmpty()) {
+            return;
+        }
+        String move = movesHistory.remove(movesHistory.size() - 1);
+        int offset = historyOffsets.remove(historyOffsets.size() - 1);
+        Document document = moveHistoryArea.getDocument();
+        try {
+            // A black move is followed by its line's newline, which stays for the white move
+            boolean startsLine = (movesHistory.size() + historyPlyOffset) % 2 == 0 || movesHistory.isEmpty();
+            int length = startsLine ? document.getLength() - offset : move.length() + 1;
+            document.remove(offset, length);
+        } catch (BadLocationException e) {
+            Diagnostics.log(Diagnostics.Level.ERROR, "Move history out of sync: " + e.getMessage());
+        }
+        moveHistoryArea.setCaretPosition(document.getLength());
+    }
+
+    // Takes back the last move; against the engine, also takes back the engine's reply so the
+    // player is on move again
+    private void undoMove() {
+        stopEngine();
+        board.undoMove();
+        if (gameMode == GameMode.PVE && !board.isWhiteTurn()) {
+            board.undoMove();
+        }
+        checkForCheck();
+    }
+
+    // Replays the first game of a PGN file on a fresh board, from its FEN tag if it has one
+    private void openPgn() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try (PgnReader reader = new PgnReader(new InputStreamReader(
+                new FileInputStream(chooser.getSelectedFile()), StandardCharsets.ISO_8859_1))) {
+            PgnGame game = reader.next();
+            if (game == null) {
+                throw new IllegalArgumentException("No game found");
+            }
+            int[] moves = game.resolveMoves();
+            resetGame();
+            if (game.getTag("FEN") != null) {
+                startFrom(game.getTag("FEN"));
+            }
+            for (int move : moves) {
+                board.makeMove(move);
+            }
+            checkForCheck();
+            startEngineMoveIfNeeded();
+        } catch (IOException | IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, "Could not open PGN: " + e.getMessage(),
+                "Open PGN", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void savePgn() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        GameCore core = board.getCore();
+        String result = core.getResult();
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "Casual game");
+        tags.put("Site", "?");
+        tags.put("Date", LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")));
+        tags.put("Round", "-");
+        tags.put("White", "Player");
+        tags.put("Black", gameMode == GameMode.PVE ? "Engine" : "Player");
+        tags.put("Result", result);
+        try (PgnWriter writer = new PgnWriter(new OutputStreamWriter(
+                new FileOutputStream(chooser.getSelectedFile()), StandardCharsets.ISO_8859_1))) {
+            Position start = core.getStartPosition();
+            if (start.key() != Position.startPosition().key()) {
+                tags.put("SetUp", "1");
+                tags.put("FEN", start.toFen());
             }
+            writer.writeGame(tags, start, core.getMoves(), result);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not save PGN: " + e.getMessage(),
+                "Save PGN", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Starts a new game from a position typed or pasted as FEN
+    private void loadFen() {
+        String fen = JOptionPane.showInputDialog(this, "FEN:", board.convertToFEN());
+        if (fen == null || fen.trim().isEmpty()) {
+            return;
         }
-        moveHistoryArea.setText(history.toString());
-        moveHistoryArea.setCaretPosition(moveHistoryArea.getDocument().getLength());
+        try {
+            Position.fromFen(fen.trim()); // Check it before the current game is thrown away
+            resetGame();
+            startFrom(fen.trim());
+            checkForCheck();
+            startEngineMoveIfNeeded();
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Load FEN", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Sets up a freshly reset board at a FEN position and numbers the history from there
+    private void startFrom(String fen) {
+        board.loadFen(fen);
+        Position pos = board.getPosition();
+        historyFirstMove = pos.fullmoveNumber();
+        historyPlyOffset = pos.sideToMove() == Position.WHITE ? 0 : 1;
     }
 
     // Reset the board and move history for a new game
     private void resetGame() {
-        System.out.println("Resetting game..."); // Debug log
+        Diagnostics.log(Diagnostics.Level.INFO, "Resetting game...");
+        stopEngine();
         remove(board);
         board = new ChessBoard(this); // create a new board and assign it
+        board.getCore().setTablebases(tablebases);
         add(board, BorderLayout.CENTER); // add the new board to the UI
         movesHistory.clear();
-        updateMoveHistoryDisplay();
+        historyOffsets.clear();
+        historyFirstMove = 1;
+        historyPlyOffset = 0;
+        moveHistoryArea.setText("");
         
         revalidate();
         repaint();
@@ -239,5 +540,6 @@ public class ChessGame extends JFrame {
 }
 
 enum GameMode {
-    PVP
+    PVP,
+    PVE
 } 
\ No newline at end of file
@@ -3,32 +3,70 @@ package com.chess;
 import java.awt.*;
 import java.util.*;
 
+// Pieces are immutable flyweights: color, symbol and a shared sprite, with no per-square state,
+// so one instance per piece kind serves every square of every board
 public abstract class ChessPiece {
-    protected boolean isWhite;
-    protected Image pieceImage;
-    protected char symbol;
+    private static final ChessPiece[] SHARED = new ChessPiece[12];
 
-    public ChessPiece(boolean isWhite) {
+    protected final boolean isWhite;
+    protected final Image pieceImage;
+    protected final char symbol;
+
+    protected ChessPiece(boolean isWhite, char symbol) {
         this.isWhite = isWhite;
-        loadImage();
+        this.symbol = symbol;
+        this.pieceImage = PieceImages.get(isWhite, symbol);
+    }
+
+    // Shared instance for a piece code (see Position.makePiece)
+    public static synchronized ChessPiece of(int piece) {
+        ChessPiece shared = SHARED[piece];
+        if (shared == null) {
+            boolean isWhite = Position.colorOf(piece) == Position.WHITE;
+            switch (Position.typeOf(piece)) {
+                case Position.PAWN: shared = new Pawn(isWhite); break;
+                case Position.KNIGHT: shared = new Knight(isWhite); break;
+                case Position.BISHOP: shared = new Bishop(isWhite); break;
+                case Position.ROOK: shared = new Rook(isWhite); break;
+                case Position.QUEEN: shared = new Queen(isWhite); break;
+                default: shared = new King(isWhite); break;
+            }
+            SHARED[piece] = shared;
+        }
+        return shared;
     }
 
     public boolean isWhite() {
         return isWhite;
     }
 
-    protected abstract void loadImage();
-    
+    // Piece code as used by Position (color * 6 + type)
+    public int getCode() {
+        return Position.makePiece(isWhite ? Position.WHITE : Position.BLACK, "pnbrqk".indexOf(symbol));
+    }
+
+    // Draws a sprite already scaled to the square size, so no per-frame rescaling is needed
+    public void draw(Graphics2D g2d, Image sprite, int x, int y) {
+        g2d.drawImage(sprite, x, y, null);
+        if (Diagnostics.isEnabled(Diagnostics.Level.DEBUG)) {
+            Diagnostics.log(Diagnostics.Level.DEBUG, "Drawing piece: " + symbol + " at (" + x + "," + y + ")");
+        }
+    }
+
     public void draw(Graphics2D g2d, int x, int y, int size) {
         if (pieceImage != null) {
             g2d.drawImage(pieceImage, x, y, size, size, null);
-            System.out.println("Drawing piece: " + symbol + " at (" + x + "," + y + ")");
-        } else {
-            System.err.println("Cannot draw piece: " + symbol + " - pieceImage is null");
+            if (Diagnostics.isEnabled(Diagnostics.Level.DEBUG)) {
+                Diagnostics.log(Diagnostics.Level.DEBUG, "Drawing piece: " + symbol + " at (" + x + "," + y + ")");
+            }
+        } else if (Diagnostics.isEnabled(Diagnostics.Level.DEBUG)) {
+            // The failed load itself is reported once, as an error, by PieceImages
+            Diagnostics.log(Diagnostics.Level.DEBUG, "Cannot draw piece: " + symbol + " - pieceImage is null");
         }
     }
 
-    public abstract Set<Point> getLegalMoves(ChessPiece[][] board, int row, int col);
+    // Appends this piece's pseudo-legal moves from the given square as packed ints (see Move)
+    public abstract void getLegalMoves(Position position, int square, MoveList moves);
 
     protected boolean isValidPosition(int row, int col) {
         return row >= 0 && row < 8 && col >= 0 && col < 8;
@@ -47,7 +85,8 @@ public abstract class ChessPiece {
     }
 
     public boolean isValidMove(int fromRow, int fromCol, int toRow, int toCol, ChessBoard board) {
-        Set<Point> legalMoves = getLegalMoves(board.getBoard(), fromRow, fromCol);
-        return legalMoves.contains(new Point(toCol, toRow));
+        MoveList moves = new MoveList();
+        getLegalMoves(board.getPosition(), Position.toSquare(fromRow, fromCol), moves);
+        return moves.find(Position.toSquare(fromRow, fromCol), Position.toSquare(toRow, toCol)) != Move.NONE;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.chess;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide logging and render metrics behind a pluggable sink. Only errors are reported by
+// default; callers on hot paths check isEnabled() first, so disabled levels cost a field read and
+// no string building. Start with -Dchess.diagnostics=INFO (or DEBUG) to turn on frame metrics.
+public final class Diagnostics {
+    public enum Level { OFF, ERROR, INFO, DEBUG }
+
+    public interface Sink {
+        void log(Level level, String message);
+    }
+
+    public static final Sink CONSOLE = (level, message) ->
+        (level == Level.ERROR ? System.err : System.out).println(message);
+
+    private static volatile Level level = Level.valueOf(System.getProperty("chess.diagnostics", "ERROR"));
+    private static volatile Sink sink = CONSOLE;
+
+    private static final LongAdder frames = new LongAdder();
+    private static final LongAdder frameNanos = new LongAdder();
+    private static final LongAccumulator maxFrameNanos = new LongAccumulator(Math::max, 0);
+    private static final LongAdder piecesDrawn = new LongAdder();
+
+    private Diagnostics() {
+    }
+
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static void setSink(Sink newSink) {
+        sink = newSink != null ? newSink : CONSOLE;
+    }
+
+    public static boolean isEnabled(Level messageLevel) {
+        return messageLevel != Level.OFF && messageLevel.compareTo(level) <= 0;
+    }
+
+    // Frame metrics are collected from INFO on
+    public static boolean metricsEnabled() {
+        return level.compareTo(Level.INFO) >= 0;
+    }
+
+    public static void log(Level messageLevel, String message) {
+        if (isEnabled(messageLevel)) {
+            sink.log(messageLevel, message);
+        }
+    }
+
+    public static void recordFrame(long nanos, int pieces) {
+        frames.increment();
+        frameNanos.add(nanos);
+        maxFrameNanos.accumulate(nanos);
+        piecesDrawn.add(pieces);
+        if (isEnabled(Level.DEBUG)) {
+            sink.log(Level.DEBUG, "Frame: " + pieces + " pieces in " + nanos / 1000 + " us");
+        }
+    }
+
+    public static long frames() {
+        return frames.sum();
+    }
+
+    public static long piecesDrawn() {
+        return piecesDrawn.sum();
+    }
+
+    public static long averageFrameNanos() {
+        long count = frames.sum();
+        return count == 0 ? 0 : frameNanos.sum() / count;
+    }
+
+    public static long maxFrameNanos() {
+        return maxFrameNanos.get();
+    }
+
+    public static void reset() {
+        frames.reset();
+        frameNanos.reset();
+        maxFrameNanos.reset();
+        piecesDrawn.reset();
+    }
+
+    public static String summary() {
+        return "frames " + frames() + " avg " + averageFrameNanos() / 1000 + " us max "
+            + maxFrameNanos() / 1000 + " us pieces " + piecesDrawn();
+    }
+}
@@ -0,0 +1,169 @@
+package com.chess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+// Streaming EPD/FEN reader: one position per line, parsed straight into a caller's Position, so a
+// file of millions of positions is loaded without allocating per line. Operations after the four
+// (or six, for FEN) fields, such as bm Nf3; id "WAC.001";, are kept as text for operation().
+public class EpdReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private final StringBuilder line = new StringBuilder(128);
+    private int operationsStart;
+    private long lineNumber;
+
+    public EpdReader(Reader in) {
+        this.in = in;
+    }
+
+    // Loads the next position into pos and returns false at the end of the input. Blank lines
+    // and lines starting with '#' are skipped. An invalid line throws IllegalArgumentException
+    // naming its line number; it is consumed, so reading can go on with the next one.
+    public boolean next(Position pos) throws IOException {
+        while (readLine()) {
+            int start = 0;
+            while (start < line.length() && Character.isWhitespace(line.charAt(start))) {
+                start++;
+            }
+            if (start == line.length() || line.charAt(start) == '#') {
+                continue;
+            }
+            try {
+                operationsStart = pos.setFen(line, start, line.length());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // The current line, valid until the next call to next()
+    public CharSequence line() {
+        return line;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    // Value of an operation of the current line without its quotes, "" for an operation without
+    // operands, or null if the line does not have it
+    public String operation(String opcode) {
+        int i = operationsStart;
+        int end = line.length();
+        while (i < end) {
+            while (i < end && (Character.isWhitespace(line.charAt(i)) || line.charAt(i) == ';')) {
+                i++;
+            }
+            int nameStart = i;
+            while (i < end && !Character.isWhitespace(line.charAt(i)) && line.charAt(i) != ';') {
+                i++;
+            }
+            boolean match = i - nameStart == opcode.length() && regionMatches(nameStart, opcode);
+            while (i < end && line.charAt(i) == ' ') {
+                i++;
+            }
+            int valueStart = i;
+            boolean quoted = false;
+            while (i < end && (quoted || line.charAt(i) != ';')) {
+                if (line.charAt(i) == '"') {
+                    quoted = !quoted;
+                }
+                i++;
+            }
+            if (match) {
+                int valueEnd = i;
+                while (valueEnd > valueStart && Character.isWhitespace(line.charAt(valueEnd - 1))) {
+                    valueEnd--;
+                }
+                if (valueEnd - valueStart >= 2 && line.charAt(valueStart) == '"' && line.charAt(valueEnd - 1) == '"') {
+                    valueStart++;
+                    valueEnd--;
+                }
+                return line.substring(valueStart, valueEnd);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean regionMatches(int start, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (line.charAt(start + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean readLine() throws IOException {
+        line.setLength(0);
+        int c;
+        while ((c = read()) >= 0 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        if (c < 0 && line.length() == 0) {
+            return false;
+        }
+        lineNumber++;
+        return true;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    // Usage: EpdReader file.epd  (loads every position and reports the rate)
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: EpdReader file.epd");
+            System.exit(2);
+        }
+        Position pos = new Position();
+        long positions = 0;
+        long invalid = 0;
+        long start = System.nanoTime();
+        try (EpdReader reader = new EpdReader(new InputStreamReader(
+                Files.newInputStream(Paths.get(args[0])), StandardCharsets.ISO_8859_1))) {
+            while (true) {
+                try {
+                    if (!reader.next(pos)) {
+                        break;
+                    }
+                    positions++;
+                } catch (IllegalArgumentException e) {
+                    invalid++;
+                    Diagnostics.log(Diagnostics.Level.ERROR, e.getMessage());
+                }
+            }
+        }
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        System.out.printf("%d positions (%d invalid) in %d ms: %d positions/s%n", positions, invalid,
+            elapsedNanos / 1_000_000, positions * 1_000_000_000L / elapsedNanos);
+    }
+}
@@ -0,0 +1,150 @@
+package com.chess;
+
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+// Static evaluation in centipawns from the side to move's point of view: material plus
+// piece-square tables, each with a middlegame and an endgame value, blended by game phase.
+// Position keeps the sum of the table entries of its pieces and the phase up to date in
+// putPiece/removePiece/movePiece, so evaluating a node is a few adds and one multiply.
+public final class Evaluation {
+    // Material for move ordering; the evaluation itself uses the tapered values below
+    public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    private static final int[] MG_VALUES = {82, 337, 365, 477, 1025, 0};
+    private static final int[] EG_VALUES = {94, 281, 297, 512, 936, 0};
+
+    // Game phase: 24 with all minor and major pieces on the board, 0 with none
+    static final int MAX_PHASE = 24;
+    static final int[] PHASE = {0, 1, 1, 2, 4, 0, 0, 1, 1, 2, 4, 0};
+
+    // Table entry of each piece on each square at [piece << 6 | square], signed for white and
+    // packed as score(middlegame, endgame), so one add updates both halves
+    static final int[] PSQT = new int[12 * 64];
+
+    // Checks every incremental score against a full recomputation (-Dchess.eval.check=true)
+    private static final boolean CHECK = Boolean.getBoolean("chess.eval.check");
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            int rank = sq >>> 3;
+            int file = sq & 7;
+            // 0 on the rim up to 3 on the four centre squares
+            int centrality = (7 - Math.max(Math.abs(2 * rank - 7), Math.abs(2 * file - 7))) / 2;
+            int[] mg = new int[6];
+            int[] eg = new int[6];
+
+            mg[Position.PAWN] = 5 * (rank - 1) + ((file == 3 || file == 4) && (rank == 3 || rank == 4) ? 15 : 0);
+            eg[Position.PAWN] = 10 * (rank - 1);
+            mg[Position.KNIGHT] = 10 * centrality - 15;
+            eg[Position.KNIGHT] = 8 * centrality - 10;
+            mg[Position.BISHOP] = 5 * centrality;
+            eg[Position.BISHOP] = 5 * centrality;
+            mg[Position.ROOK] = rank == 6 ? 15 : 0;
+            eg[Position.ROOK] = rank == 6 ? 10 : 0;
+            mg[Position.QUEEN] = 2 * centrality;
+            eg[Position.QUEEN] = 5 * centrality;
+            // Keep the king home and tucked away while there is material; centralize it later
+            mg[Position.KING] = rank == 0 ? (file == 1 || file == 2 || file == 6 ? 20 : 0) : -15 * rank;
+            eg[Position.KING] = 10 * centrality - 15;
+
+            for (int type = Position.PAWN; type <= Position.KING; type++) {
+                int value = score(MG_VALUES[type] + mg[type], EG_VALUES[type] + eg[type]);
+                PSQT[Position.makePiece(Position.WHITE, type) << 6 | sq] = value;
+                PSQT[Position.makePiece(Position.BLACK, type) << 6 | (sq ^ 56)] = -value;
+            }
+        }
+    }
+
+    private Evaluation() {
+    }
+
+    public static int evaluate(Position pos) {
+        if (CHECK) {
+            check(pos);
+        }
+        int score = taper(pos.psqtScore(), pos.phase());
+        return pos.sideToMove() == Position.WHITE ? score : -score;
+    }
+
+    // Same value as evaluate, summed over the board instead of read from the incremental terms
+    public static int evaluateFromScratch(Position pos) {
+        int psqt = 0;
+        int phase = 0;
+        long occupied = pos.occupied();
+        while (occupied != 0) {
+            int sq = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            int piece = pos.pieceAt(sq);
+            psqt += PSQT[piece << 6 | sq];
+            phase += PHASE[piece];
+        }
+        int score = taper(psqt, phase);
+        return pos.sideToMove() == Position.WHITE ? score : -score;
+    }
+
+    // Packs a middlegame and an endgame value into one int; sums of packed scores stay packed
+    static int score(int mg, int eg) {
+        return (eg << 16) + mg;
+    }
+
+    static int mg(int score) {
+        return (short) score;
+    }
+
+    static int eg(int score) {
+        return (short) ((score + 0x8000) >> 16);
+    }
+
+    // White's score, blended from middlegame to endgame as pieces come off (promotions can push
+    // the phase past MAX_PHASE)
+    private static int taper(int psqt, int phase) {
+        phase = Math.min(phase, MAX_PHASE);
+        return (mg(psqt) * phase + eg(psqt) * (MAX_PHASE - phase)) / MAX_PHASE;
+    }
+
+    private static void check(Position pos) {
+        int expected = evaluateFromScratch(pos);
+        int actual = taper(pos.psqtScore(), pos.phase());
+        if ((pos.sideToMove() == Position.WHITE ? actual : -actual) != expected) {
+            throw new IllegalStateException("Incremental evaluation " + actual + " differs from " + expected
+                + " in " + pos.toFen());
+        }
+    }
+
+    // Scores every position of an EPD/FEN file, e.g. for batch analysis. Each line is written back
+    // with a "ce" (centipawn evaluation) operation. Usage: Evaluation file.epd > scored.epd
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: Evaluation file.epd");
+            System.exit(2);
+        }
+        Position pos = new Position();
+        try (EpdReader reader = new EpdReader(new InputStreamReader(
+                 Files.newInputStream(Paths.get(args[0])), StandardCharsets.ISO_8859_1));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.ISO_8859_1))) {
+            StringBuilder line = new StringBuilder(128);
+            while (true) {
+                try {
+                    if (!reader.next(pos)) {
+                        break;
+                    }
+                } catch (IllegalArgumentException e) {
+                    Diagnostics.log(Diagnostics.Level.ERROR, e.getMessage());
+                    continue;
+                }
+                line.setLength(0);
+                line.append(reader.line());
+                while (line.length() > 0 && Character.isWhitespace(line.charAt(line.length() - 1))) {
+                    line.setLength(line.length() - 1);
+                }
+                line.append(" ce ").append(evaluate(pos)).append(";\n");
+                out.append(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.chess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Append-only binary game archive with random access by game number. Two files:
+//   <base>.gam  header, then one record per game: u16 move count, u8 result, u8 flags,
+//               [u16 FEN length, FEN bytes if flags has CUSTOM_START], u16 per move (see Move)
+//   <base>.idx  header, then a u64 data offset per game
+// Both are read through memory mappings, so reads are zero-copy and the archive lives in the page
+// cache instead of the heap. All values are big-endian.
+public class GameArchive implements Closeable {
+    private static final int DATA_MAGIC = 0x43484741; // "CHGA"
+    private static final int INDEX_MAGIC = 0x43484749; // "CHGI"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int CUSTOM_START = 1;
+    private static final String[] RESULTS = {"*", "1-0", "0-1", "1/2-1/2"};
+
+    // Largest possible record, so one mapped segment always holds a whole record
+    private static final int MAX_RECORD = 4 + 2 + 0xFFFF + 2 * 0xFFFF;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    // Mapped segments of 1 GB
+    private static final int SEGMENT_BITS = 30;
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final MappedFile dataMap;
+    private final MappedFile indexMap;
+    private final ByteBuffer dataBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private long dataEnd;
+    private volatile long flushedGames;
+    private volatile long games;
+
+    private GameArchive(FileChannel data, FileChannel index, int segmentBits) throws IOException {
+        this.data = data;
+        this.index = index;
+        if (data.size() == 0) {
+            writeHeader(data, DATA_MAGIC);
+            writeHeader(index, INDEX_MAGIC);
+        } else {
+            checkHeader(data, DATA_MAGIC);
+            checkHeader(index, INDEX_MAGIC);
+        }
+        dataMap = new MappedFile(data, MAX_RECORD, segmentBits);
+        indexMap = new MappedFile(index, Long.BYTES, segmentBits);
+        games = (index.size() - HEADER_SIZE) / Long.BYTES;
+        flushedGames = games;
+        // Bytes after the last indexed record (e.g. from an interrupted append) are overwritten
+        dataEnd = games == 0 ? HEADER_SIZE : recordEnd(games - 1);
+    }
+
+    // Opens the archive at <base>.gam/<base>.idx, creating it if it does not exist
+    public static GameArchive open(Path base) throws IOException {
+        return open(base, SEGMENT_BITS);
+    }
+
+    // Same, mapping the files in segments of 2^segmentBits bytes (small ones exercise the
+    // segment boundaries without gigabyte files)
+    static GameArchive open(Path base, int segmentBits) throws IOException {
+        Path dataPath = base.resolveSibling(base.getFileName() + ".gam");
+        Path indexPath = base.resolveSibling(base.getFileName() + ".idx");
+        FileChannel data = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel index = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new GameArchive(data, index, segmentBits);
+    }
+
+    public long size() {
+        return games;
+    }
+
+    // Appends a game and returns its number. Moves are packed moves (see Move) played from start.
+    public synchronized long append(Position start, int[] moves, String result) throws IOException {
+        if (moves.length > 0xFFFF) {
+            throw new IllegalArgumentException("Too many moves for one record: " + moves.length);
+        }
+        int resultCode = Arrays.asList(RESULTS).indexOf(result);
+        byte[] fen = isStandardStart(start) ? null : start.toFen().getBytes(StandardCharsets.US_ASCII);
+        int length = 4 + (fen != null ? 2 + fen.length : 0) + 2 * moves.length;
+        if (dataBuffer.remaining() < length || indexBuffer.remaining() < Long.BYTES) {
+            flush();
+        }
+        if (length > dataBuffer.capacity()) {
+            throw new IllegalArgumentException("Record too large: " + length + " bytes");
+        }
+
+        indexBuffer.putLong(dataEnd);
+        dataBuffer.putShort((short) moves.length);
+        dataBuffer.put((byte) Math.max(0, resultCode));
+        dataBuffer.put((byte) (fen != null ? CUSTOM_START : 0));
+        if (fen != null) {
+            dataBuffer.putShort((short) fen.length);
+            dataBuffer.put(fen);
+        }
+        for (int move : moves) {
+            dataBuffer.putShort((short) move);
+        }
+        dataEnd += length;
+        return games++;
+    }
+
+    // Writes buffered appends to disk so they become visible to readers of the mapping
+    public synchronized void flush() throws IOException {
+        long dataPosition = dataEnd - dataBuffer.position();
+        dataBuffer.flip();
+        while (dataBuffer.hasRemaining()) {
+            dataPosition += data.write(dataBuffer, dataPosition);
+        }
+        dataBuffer.clear();
+        long indexPosition = HEADER_SIZE + flushedGames * Long.BYTES;
+        indexBuffer.flip();
+        while (indexBuffer.hasRemaining()) {
+            indexPosition += index.write(indexBuffer, indexPosition);
+        }
+        indexBuffer.clear();
+        flushedGames = games;
+    }
+
+    public int[] moves(long game) throws IOException {
+        long offset = offset(game);
+        int count = dataMap.getShort(offset) & 0xFFFF;
+        long movesOffset = offset + 4 + fenLength(offset);
+        int[] moves = new int[count];
+        for (int i = 0; i < count; i++) {
+            moves[i] = dataMap.getShort(movesOffset + 2L * i) & 0xFFFF;
+        }
+        return moves;
+    }
+
+    public String result(long game) throws IOException {
+        return RESULTS[dataMap.getByte(offset(game) + 2) & 3];
+    }
+
+    public Position startPosition(long game) throws IOException {
+        long offset = offset(game);
+        int fenLength = fenLength(offset);
+        if (fenLength == 0) {
+            return Position.startPosition();
+        }
+        byte[] fen = new byte[fenLength - 2];
+        for (int i = 0; i < fen.length; i++) {
+            fen[i] = dataMap.getByte(offset + 6 + i);
+        }
+        return Position.fromFen(new String(fen, StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        data.close();
+        index.close();
+    }
+
+    private long offset(long game) throws IOException {
+        if (game < 0 || game >= size()) {
+            throw new IndexOutOfBoundsException("Game " + game + " of " + size());
+        }
+        synchronized (this) {
+            if (game >= flushedGames) {
+                flush();
+            }
+        }
+        return indexMap.getLong(HEADER_SIZE + game * Long.BYTES);
+    }
+
+    // Bytes taken by the optional FEN block, including its length field
+    private int fenLength(long offset) throws IOException {
+        if ((dataMap.getByte(offset + 3) & CUSTOM_START) == 0) {
+            return 0;
+        }
+        return 2 + (dataMap.getShort(offset + 4) & 0xFFFF);
+    }
+
+    private long recordEnd(long game) throws IOException {
+        long offset = indexMap.getLong(HEADER_SIZE + game * Long.BYTES);
+        return offset + 4 + fenLength(offset) + 2L * (dataMap.getShort(offset) & 0xFFFF);
+    }
+
+    private static boolean isStandardStart(Position start) {
+        return start.ply() == 0 && start.key() == Position.startPosition().key();
+    }
+
+    private static void writeHeader(FileChannel channel, int magic) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(magic).putInt(VERSION).rewind(); // Rest of the header is reserved
+        channel.write(header, 0);
+    }
+
+    private static void checkHeader(FileChannel channel, int magic) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        if (header.getInt(0) != magic || header.getInt(4) != VERSION) {
+            throw new IOException("Not a game archive file (or unsupported version)");
+        }
+    }
+
+    // Read-only view of a growing file as mapped segments (1 GB by default). Each also maps the
+    // first bytes of the next one, so a value or record never straddles two mappings.
+    private static final class MappedFile {
+        private final FileChannel channel;
+        private final int overlap;
+        private final int segmentBits;
+        private final long segmentMask;
+        // Replaced, never modified, once published: readers use it without the lock
+        private volatile MappedByteBuffer[] segments = new MappedByteBuffer[1];
+
+        MappedFile(FileChannel channel, int overlap, int segmentBits) {
+            this.channel = channel;
+            this.overlap = overlap;
+            this.segmentBits = segmentBits;
+            this.segmentMask = (1L << segmentBits) - 1;
+        }
+
+        byte getByte(long offset) throws IOException {
+            return segment(offset, 1).get((int) (offset & segmentMask));
+        }
+
+        short getShort(long offset) throws IOException {
+            return segment(offset, 2).getShort((int) (offset & segmentMask));
+        }
+
+        long getLong(long offset) throws IOException {
+            return segment(offset, 8).getLong((int) (offset & segmentMask));
+        }
+
+        // Maps (or remaps, once the file has grown) the segment holding [offset, offset + length)
+        private MappedByteBuffer segment(long offset, int length) throws IOException {
+            int index = (int) (offset >>> segmentBits);
+            MappedByteBuffer[] current = segments;
+            if (index < current.length && current[index] != null
+                    && (offset & segmentMask) + length <= current[index].limit()) {
+                return current[index];
+            }
+            synchronized (this) {
+                long start = (long) index << segmentBits;
+                long size = Math.min(channel.size() - start, (1L << segmentBits) + overlap);
+                if (size < (offset & segmentMask) + length) {
+                    throw new IOException("Archive is truncated at offset " + offset);
+                }
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                MappedByteBuffer[] updated = Arrays.copyOf(segments, Math.max(segments.length, index + 1));
+                updated[index] = segment;
+                segments = updated;
+                return segment;
+            }
+        }
+    }
+
+    // Appends the valid games of a PGN file in file order, so archive game N is the Nth valid
+    // game, and returns the importer for its counts
+    public static PgnImport importGames(PgnReader reader, GameArchive archive) throws IOException, InterruptedException {
+        // One worker keeps the order; reading the file still overlaps with resolving the moves
+        PgnImport importer = new PgnImport(1);
+        importer.run(reader, (game, moves) -> {
+            try {
+                archive.append(game.startPosition(), moves, game.getResult());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, null);
+        archive.flush();
+        return importer;
+    }
+
+    // Usage: GameArchive import file.pgn archive  |  GameArchive show archive gameNumber
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("import")) {
+            try (GameArchive archive = GameArchive.open(Paths.get(args[2]));
+                 PgnReader reader = new PgnReader(new InputStreamReader(
+                     Files.newInputStream(Paths.get(args[1])), StandardCharsets.ISO_8859_1))) {
+                long before = archive.size();
+                long start = System.nanoTime();
+                PgnImport importer = importGames(reader, archive);
+                long elapsedNanos = Math.max(1, System.nanoTime() - start);
+                long added = archive.size() - before;
+                System.out.printf("%d games archived (%d invalid skipped) in %d ms: %d games/s, %d bytes total%n",
+                    added, importer.getInvalidGames(), elapsedNanos / 1_000_000,
+                    added * 1_000_000_000L / elapsedNanos, archive.dataEnd);
+            }
+        } else if (args.length == 3 && args[0].equals("show")) {
+            try (GameArchive archive = GameArchive.open(Paths.get(args[1]));
+                 PgnWriter writer = new PgnWriter(new OutputStreamWriter(System.out, StandardCharsets.ISO_8859_1))) {
+                long game = Long.parseLong(args[2]);
+                Map<String, String> tags = new LinkedHashMap<>();
+                tags.put("Event", "Archive game " + game);
+                tags.put("Result", archive.result(game));
+                writer.writeGame(tags, archive.startPosition(game), archive.moves(game), archive.result(game));
+            }
+        } else {
+            System.err.println("Usage: GameArchive import file.pgn archive | GameArchive show archive gameNumber");
+            System.exit(2);
+        }
+    }
+}
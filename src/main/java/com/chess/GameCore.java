@@ -0,0 +1,196 @@
+package com.chess;
+
+// Headless rules core of one game: the position, its legal moves and the game status. It has no
+// Swing dependency, so the board UI, the engine and the game server all drive games through it.
+// Not thread-safe; one owner (the EDT, or a GameServer actor) uses it at a time.
+public class GameCore {
+    public enum Status { ONGOING, CHECKMATE, STALEMATE, FIFTY_MOVE_RULE, THREEFOLD_REPETITION, INSUFFICIENT_MATERIAL }
+
+    private final Position position;
+    private final MoveList legalMoves = new MoveList();
+    private boolean legalMovesValid;
+    private Tablebases tablebases;
+    // Position the game started from, kept so getStartPosition() never has to rewind the game
+    private Position start;
+    // Parse target of load(), so an invalid FEN never touches the game or its start position
+    private Position loaded;
+
+    public GameCore() {
+        this(Position.startPosition());
+    }
+
+    public GameCore(Position position) {
+        this.position = position;
+        // Moves already played on the position belong to the game; its start is before them
+        int[] moves = getMoves();
+        rewind();
+        start = position.copy();
+        for (int move : moves) {
+            position.makeMove(move);
+        }
+    }
+
+    // Endgame tablebases consulted by the status queries; null (the default) to use none
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
+    public PositionSnapshot snapshot() {
+        return position.snapshot();
+    }
+
+    // Legal moves of the side to move, generated once per position. Callers must not modify it.
+    public MoveList legalMoves() {
+        if (!legalMovesValid) {
+            legalMoves.clear();
+            MoveGenerator.generateLegal(position, legalMoves);
+            legalMovesValid = true;
+        }
+        return legalMoves;
+    }
+
+    public boolean isLegal(int move) {
+        return move != Move.NONE && legalMoves().contains(move);
+    }
+
+    // The legal move between two squares, or Move.NONE; promotionType only matters for promotions
+    public int findMove(int from, int to, int promotionType) {
+        if (position.pieceAt(from) == Position.NO_PIECE) {
+            return Move.NONE;
+        }
+        int move = position.moveFor(from, to, promotionType);
+        return isLegal(move) ? move : Move.NONE;
+    }
+
+    // Plays the move if it is legal; returns false and leaves the game unchanged otherwise
+    public boolean play(int move) {
+        if (!isLegal(move)) {
+            return false;
+        }
+        position.makeMove(move);
+        legalMovesValid = false;
+        return true;
+    }
+
+    public boolean undo() {
+        if (position.ply() == 0) {
+            return false;
+        }
+        position.unmakeMove();
+        legalMovesValid = false;
+        return true;
+    }
+
+    // Takes back every move, back to the position the game started from
+    public void rewind() {
+        while (position.ply() > 0) {
+            position.unmakeMove();
+        }
+        legalMovesValid = false;
+    }
+
+    // Starts a new game from a FEN position. The FEN is checked first, so an invalid one throws
+    // IllegalArgumentException and leaves the current game unchanged.
+    public void load(String fen) {
+        if (loaded == null) {
+            loaded = new Position();
+        }
+        loaded.setFen(fen);
+        Position parsed = loaded;
+        loaded = start;
+        start = parsed;
+        position.copyFrom(start);
+        legalMovesValid = false;
+    }
+
+    // Copy of the position the game started from (the one undo() returns to)
+    public Position getStartPosition() {
+        return start.copy();
+    }
+
+    public int plyCount() {
+        return position.ply();
+    }
+
+    // Moves played so far, oldest first
+    public int[] getMoves() {
+        int[] moves = new int[position.ply()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = position.moveAt(i);
+        }
+        return moves;
+    }
+
+    // PGN result of the game: "1-0", "0-1", "1/2-1/2" or "*" while it is still going
+    public String getResult() {
+        Status status = status();
+        if (status == Status.CHECKMATE) {
+            return position.sideToMove() == Position.WHITE ? "0-1" : "1-0";
+        }
+        return status == Status.ONGOING ? "*" : "1/2-1/2";
+    }
+
+    // Whether and how the game has ended. Draws by the fifty-move rule and by threefold
+    // repetition are applied as soon as they can be claimed. Cheap enough to ask after every
+    // move: the legal moves are cached, material is counted incrementally and the repetition
+    // check compares at most halfmoveClock / 2 keys.
+    public Status status() {
+        if (legalMoves().isEmpty()) {
+            return isCheck() ? Status.CHECKMATE : Status.STALEMATE;
+        }
+        if (position.isInsufficientMaterial()) {
+            return Status.INSUFFICIENT_MATERIAL;
+        }
+        if (position.halfmoveClock() >= 100) {
+            return Status.FIFTY_MOVE_RULE;
+        }
+        if (position.repetitions() >= 2) {
+            return Status.THREEFOLD_REPETITION;
+        }
+        return Status.ONGOING;
+    }
+
+    public boolean isDraw() {
+        Status status = status();
+        return status != Status.ONGOING && status != Status.CHECKMATE;
+    }
+
+    public boolean isCheck() {
+        return position.isInCheck(position.sideToMove());
+    }
+
+    public boolean isCheckmate() {
+        if (tablebases != null && Long.bitCount(position.occupied()) <= Tablebases.MAX_PIECES) {
+            int wdl = tablebases.probeWdl(position);
+            if (wdl != Tablebases.UNKNOWN) {
+                return wdl == Tablebases.LOSS && tablebases.probeDtm(position) == 0;
+            }
+        }
+        return legalMoves().isEmpty() && isCheck();
+    }
+
+    // Plies until the side to move mates (positive) or is mated (negative) with best play, per
+    // the tablebases; 0 when the position is drawn or has no table
+    public int forcedMateDistance() {
+        if (tablebases == null || Long.bitCount(position.occupied()) > Tablebases.MAX_PIECES) {
+            return 0;
+        }
+        int wdl = tablebases.probeWdl(position);
+        if (wdl == Tablebases.WIN || wdl == Tablebases.LOSS) {
+            return wdl * Math.max(1, tablebases.probeDtm(position));
+        }
+        return 0;
+    }
+
+    public boolean isStalemate() {
+        return legalMoves().isEmpty() && !isCheck();
+    }
+
+    public boolean isOver() {
+        return status() != Status.ONGOING;
+    }
+}
@@ -0,0 +1,205 @@
+package com.chess;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Hosts many headless games in one process. Every game is an actor: a GameCore plus a mailbox
+// of requests that only one pool thread drains at a time, so games never need locks and a busy
+// game cannot block the others. The pool is a small FIFO event loop, one thread per core.
+public class GameServer {
+    // Messages one actor handles before yielding its thread to other games
+    private static final int BATCH_SIZE = 64;
+
+    private final ForkJoinPool pool;
+    private final Map<Long, GameActor> games = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    public GameServer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public GameServer(int threads) {
+        pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    public long createGame() {
+        long id = nextId.getAndIncrement();
+        games.put(id, new GameActor(pool));
+        return id;
+    }
+
+    public void closeGame(long gameId) {
+        games.remove(gameId);
+    }
+
+    public int gameCount() {
+        return games.size();
+    }
+
+    // Plays a move in packed form (see Move); fails with IllegalArgumentException if it is illegal
+    public CompletableFuture<PositionSnapshot> play(long gameId, int move) {
+        return ask(gameId, core -> {
+            if (!core.play(move)) {
+                throw new IllegalArgumentException("Illegal move " + Move.toString(move) + " in game " + gameId);
+            }
+            return core.snapshot();
+        });
+    }
+
+    public CompletableFuture<PositionSnapshot> undo(long gameId) {
+        return ask(gameId, core -> {
+            core.undo();
+            return core.snapshot();
+        });
+    }
+
+    public CompletableFuture<PositionSnapshot> rewind(long gameId) {
+        return ask(gameId, core -> {
+            core.rewind();
+            return core.snapshot();
+        });
+    }
+
+    public CompletableFuture<PositionSnapshot> snapshot(long gameId) {
+        return ask(gameId, GameCore::snapshot);
+    }
+
+    // Checkmate, stalemate and the draw rules, checked in O(halfmove clock) without replaying the game
+    public CompletableFuture<GameCore.Status> status(long gameId) {
+        return ask(gameId, GameCore::status);
+    }
+
+    public CompletableFuture<int[]> legalMoves(long gameId) {
+        return ask(gameId, core -> {
+            MoveList moves = core.legalMoves();
+            int[] result = new int[moves.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = moves.get(i);
+            }
+            return result;
+        });
+    }
+
+    // Runs a request on the game's actor thread; the core must not escape the function. Anything
+    // the request throws, errors included, completes the reply instead of stalling the actor.
+    public <T> CompletableFuture<T> ask(long gameId, Function<GameCore, T> request) {
+        CompletableFuture<T> reply = new CompletableFuture<>();
+        GameActor actor = games.get(gameId);
+        if (actor == null) {
+            reply.completeExceptionally(new IllegalArgumentException("Unknown game " + gameId));
+            return reply;
+        }
+        actor.tell(core -> {
+            try {
+                reply.complete(request.apply(core));
+            } catch (Throwable e) {
+                reply.completeExceptionally(e);
+            }
+        });
+        return reply;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class GameActor implements Runnable {
+        private final GameCore core = new GameCore();
+        private final Queue<Consumer<GameCore>> mailbox = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final ForkJoinPool pool;
+
+        GameActor(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        void tell(Consumer<GameCore> message) {
+            mailbox.add(message);
+            if (scheduled.compareAndSet(false, true)) {
+                pool.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Consumer<GameCore> message = mailbox.poll();
+                if (message == null) {
+                    break;
+                }
+                message.accept(core);
+            }
+            scheduled.set(false);
+            // A message may have arrived after the last poll; reschedule instead of dropping it
+            if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+                pool.execute(this);
+            }
+        }
+    }
+
+    // Throughput benchmark: simulated clients play random legal moves in many games at once and
+    // start a new game when one ends. Usage: GameServer [games [seconds [threads]]]
+    public static void main(String[] args) throws InterruptedException {
+        int gameCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        GameServer server = new GameServer(threads);
+        LongAdder moves = new LongAdder();
+        LongAdder finished = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        for (int i = 0; i < gameCount; i++) {
+            simulate(server, server.createGame(), moves, finished, running);
+        }
+
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        long elapsedNanos = System.nanoTime() - start;
+        long played = moves.sum();
+        server.shutdown();
+
+        System.out.printf("%d games on %d threads: %d moves in %d ms (%d moves/s), %d games finished%n",
+            gameCount, threads, played, elapsedNanos / 1_000_000, played * 1_000_000_000L / elapsedNanos,
+            finished.sum());
+    }
+
+    // One simulated client: adjudicates the game, then plays a random legal move and repeats
+    private static void simulate(GameServer server, long gameId, LongAdder moves, LongAdder finished,
+                                 AtomicBoolean running) {
+        server.ask(gameId, core -> {
+            if (core.isOver() || core.plyCount() >= 200) {
+                finished.increment();
+                return Move.NONE;
+            }
+            MoveList legal = core.legalMoves();
+            return legal.get(ThreadLocalRandom.current().nextInt(legal.size()));
+        }).thenCompose(move -> move == Move.NONE
+            ? server.rewind(gameId)
+            : server.play(gameId, move).thenApply(snapshot -> {
+                moves.increment();
+                return snapshot;
+            })
+        ).thenRun(() -> {
+            if (running.get()) {
+                simulate(server, gameId, moves, finished, running);
+            }
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package com.chess;
+
+// Moves are packed into the low 16 bits of an int: bits 0-5 from, bits 6-11 to, bits 12-15 flags.
+public final class Move {
+    public static final int NONE = 0;
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EP_CAPTURE = 5;
+    // Promotion flags carry the promoted piece in the low two bits (knight, bishop, rook, queen)
+    public static final int PROMOTION = 8;
+    public static final int PROMOTION_CAPTURE = 12;
+
+    private Move() {
+    }
+
+    public static int encode(int from, int to, int flags) {
+        return from | (to << 6) | (flags << 12);
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int flags(int move) {
+        return (move >>> 12) & 0xF;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & (CAPTURE << 12)) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & (PROMOTION << 12)) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        int flags = flags(move);
+        return flags == KING_CASTLE || flags == QUEEN_CASTLE;
+    }
+
+    public static int promotionType(int move) {
+        return Position.KNIGHT + (flags(move) & 3);
+    }
+
+    public static int promotionFlags(int promotionType, boolean capture) {
+        return (capture ? PROMOTION_CAPTURE : PROMOTION) | (promotionType - Position.KNIGHT);
+    }
+
+    // Coordinate notation, e.g. "e2e4" or "e7e8q"
+    public static String toString(int move) {
+        StringBuilder sb = new StringBuilder(5);
+        appendSquare(sb, from(move));
+        appendSquare(sb, to(move));
+        if (isPromotion(move)) {
+            sb.append("nbrq".charAt(promotionType(move) - Position.KNIGHT));
+        }
+        return sb.toString();
+    }
+
+    static void appendSquare(StringBuilder sb, int sq) {
+        sb.append((char) ('a' + (sq & 7))).append((char) ('1' + (sq >>> 3)));
+    }
+}
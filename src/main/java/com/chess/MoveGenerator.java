@@ -0,0 +1,308 @@
+package com.chess;
+
+// Move generation over a Position. Moves are written as packed ints into a caller-owned
+// MoveList, so generation itself never allocates.
+public final class MoveGenerator {
+
+    private MoveGenerator() {
+    }
+
+    // Strictly legal moves for the side to move. Checks and pins are worked out up front,
+    // so no move has to be tried on the position to see whether it exposes the king.
+    public static void generateLegal(Position pos, MoveList moves) {
+        int us = pos.sideToMove();
+        int them = us ^ 1;
+        int king = pos.kingSquare(us);
+        long own = pos.occupancy(us);
+        long occupied = pos.occupied();
+
+        // The king may not step onto any square the opponent would attack once it has left its square
+        long danger = pos.computeAttacks(them, occupied ^ (1L << king));
+        addTargets(pos, king, Bitboards.KING_ATTACKS[king] & ~danger, moves);
+
+        long checkers = pos.attackersTo(king, them, occupied);
+        if (Long.bitCount(checkers) > 1) {
+            return; // Double check: only king moves can help
+        }
+
+        // In check, other pieces must capture the checker or block the line to the king
+        long checkMask = -1L;
+        if (checkers != 0) {
+            checkMask = checkers | Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+        } else {
+            addCastling(pos, us, king, danger, moves);
+        }
+
+        long pinned = pinnedPieces(pos, us, king);
+        long pieces = own & ~(1L << king);
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            long mask = checkMask;
+            if ((pinned & (1L << from)) != 0) {
+                mask &= Bitboards.LINE[king][from];
+            }
+            switch (Position.typeOf(pos.pieceAt(from))) {
+                case Position.PAWN: addPawnMoves(pos, from, mask, moves); break;
+                case Position.KNIGHT: addTargets(pos, from, Bitboards.KNIGHT_ATTACKS[from] & mask, moves); break;
+                case Position.BISHOP: addTargets(pos, from, Bitboards.bishopAttacks(from, occupied) & mask, moves); break;
+                case Position.ROOK: addTargets(pos, from, Bitboards.rookAttacks(from, occupied) & mask, moves); break;
+                default: addTargets(pos, from, Bitboards.queenAttacks(from, occupied) & mask, moves); break;
+            }
+        }
+
+        // En passant removes two pawns from one rank, so it is verified against the sliders directly
+        int ep = pos.epSquare();
+        if (ep != Position.NO_SQUARE) {
+            int capturedSq = us == Position.WHITE ? ep - 8 : ep + 8;
+            long candidates = Bitboards.PAWN_ATTACKS[them][ep] & pos.pieces(us, Position.PAWN);
+            while (candidates != 0) {
+                int from = Long.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+                if (isLegalEnPassant(pos, us, king, from, ep, capturedSq, checkers)) {
+                    moves.add(Move.encode(from, ep, Move.EP_CAPTURE));
+                }
+            }
+        }
+    }
+
+    // Whether the side to move has any legal move, worked out from target sets with the same
+    // check and pin masks as generateLegal but without writing moves anywhere. Castling is
+    // skipped: when it is legal, so is the king's step towards the rook.
+    public static boolean hasLegalMove(Position pos) {
+        int us = pos.sideToMove();
+        int them = us ^ 1;
+        int king = pos.kingSquare(us);
+        long own = pos.occupancy(us);
+        long enemies = pos.occupancy(them);
+        long occupied = pos.occupied();
+
+        long danger = pos.computeAttacks(them, occupied ^ (1L << king));
+        if ((Bitboards.KING_ATTACKS[king] & ~own & ~danger) != 0) {
+            return true;
+        }
+        long checkers = pos.attackersTo(king, them, occupied);
+        if (Long.bitCount(checkers) > 1) {
+            return false;
+        }
+        long checkMask = checkers != 0
+            ? checkers | Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(checkers)] : -1L;
+
+        long pinned = pinnedPieces(pos, us, king);
+        long pieces = own & ~(1L << king);
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            long targets;
+            switch (Position.typeOf(pos.pieceAt(from))) {
+                case Position.PAWN: targets = pawnTargets(us, from, occupied, enemies); break;
+                case Position.KNIGHT: targets = Bitboards.KNIGHT_ATTACKS[from]; break;
+                case Position.BISHOP: targets = Bitboards.bishopAttacks(from, occupied); break;
+                case Position.ROOK: targets = Bitboards.rookAttacks(from, occupied); break;
+                default: targets = Bitboards.queenAttacks(from, occupied); break;
+            }
+            targets &= ~own & checkMask;
+            if ((pinned & (1L << from)) != 0) {
+                targets &= Bitboards.LINE[king][from];
+            }
+            if (targets != 0) {
+                return true;
+            }
+        }
+
+        int ep = pos.epSquare();
+        if (ep != Position.NO_SQUARE) {
+            int capturedSq = us == Position.WHITE ? ep - 8 : ep + 8;
+            long candidates = Bitboards.PAWN_ATTACKS[them][ep] & pos.pieces(us, Position.PAWN);
+            while (candidates != 0) {
+                int from = Long.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+                if (isLegalEnPassant(pos, us, king, from, ep, capturedSq, checkers)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Squares a pawn can move to, en passant aside: pushes onto empty squares and captures
+    private static long pawnTargets(int us, int from, long occupied, long enemies) {
+        int forward = us == Position.WHITE ? 8 : -8;
+        long targets = Bitboards.PAWN_ATTACKS[us][from] & enemies;
+        int to = from + forward;
+        if ((occupied & (1L << to)) == 0) {
+            targets |= 1L << to;
+            int startRank = us == Position.WHITE ? 1 : 6;
+            if ((from >>> 3) == startRank && (occupied & (1L << (to + forward))) == 0) {
+                targets |= 1L << (to + forward);
+            }
+        }
+        return targets;
+    }
+
+    // Own pieces that are the only blocker between our king and an enemy slider
+    static long pinnedPieces(Position pos, int us, int king) {
+        int them = us ^ 1;
+        long queens = pos.pieces(them, Position.QUEEN);
+        long snipers = (Bitboards.rookAttacks(king, 0L) & (pos.pieces(them, Position.ROOK) | queens))
+            | (Bitboards.bishopAttacks(king, 0L) & (pos.pieces(them, Position.BISHOP) | queens));
+        long occupied = pos.occupied();
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.BETWEEN[king][sniper] & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                pinned |= blockers & pos.occupancy(us);
+            }
+        }
+        return pinned;
+    }
+
+    private static boolean isLegalEnPassant(Position pos, int us, int king, int from, int to, int capturedSq, long checkers) {
+        // A checker other than the pawn being captured cannot be answered by en passant
+        if ((checkers & ~(1L << capturedSq)) != 0) {
+            return false;
+        }
+        int them = us ^ 1;
+        long occupied = (pos.occupied() ^ (1L << from) ^ (1L << capturedSq)) | (1L << to);
+        long queens = pos.pieces(them, Position.QUEEN);
+        return (Bitboards.rookAttacks(king, occupied) & (pos.pieces(them, Position.ROOK) | queens)) == 0
+            && (Bitboards.bishopAttacks(king, occupied) & (pos.pieces(them, Position.BISHOP) | queens)) == 0;
+    }
+
+    // All pseudo-legal moves for the side to move
+    public static void generatePseudoLegal(Position pos, MoveList moves) {
+        int us = pos.sideToMove();
+        long own = pos.occupancy(us);
+        while (own != 0) {
+            int from = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            addMoves(pos, from, moves);
+        }
+    }
+
+    // Pseudo-legal moves of the piece standing on the given square
+    public static void addMoves(Position pos, int from, MoveList moves) {
+        int piece = pos.pieceAt(from);
+        switch (Position.typeOf(piece)) {
+            case Position.PAWN: addPawnMoves(pos, from, moves); break;
+            case Position.KNIGHT: addKnightMoves(pos, from, moves); break;
+            case Position.BISHOP: addBishopMoves(pos, from, moves); break;
+            case Position.ROOK: addRookMoves(pos, from, moves); break;
+            case Position.QUEEN: addQueenMoves(pos, from, moves); break;
+            default: addKingMoves(pos, from, moves); break;
+        }
+    }
+
+    public static void addPawnMoves(Position pos, int from, MoveList moves) {
+        int us = Position.colorOf(pos.pieceAt(from));
+        addPawnMoves(pos, from, -1L, moves);
+
+        // En passant, only for the side that is actually on move
+        int ep = pos.epSquare();
+        if (ep != Position.NO_SQUARE && us == pos.sideToMove() && (Bitboards.PAWN_ATTACKS[us][from] & (1L << ep)) != 0) {
+            moves.add(Move.encode(from, ep, Move.EP_CAPTURE));
+        }
+    }
+
+    // Pushes, captures and promotions whose target square lies in the mask (en passant excluded)
+    private static void addPawnMoves(Position pos, int from, long mask, MoveList moves) {
+        int us = Position.colorOf(pos.pieceAt(from));
+        int forward = us == Position.WHITE ? 8 : -8;
+        long occupied = pos.occupied();
+
+        // Forward moves, including the double step from the starting rank
+        int to = from + forward;
+        if ((occupied & (1L << to)) == 0) {
+            if (to >= 56 || to < 8) {
+                if ((mask & (1L << to)) != 0) {
+                    addPromotions(from, to, false, moves);
+                }
+            } else {
+                if ((mask & (1L << to)) != 0) {
+                    moves.add(Move.encode(from, to, Move.QUIET));
+                }
+                int startRank = us == Position.WHITE ? 1 : 6;
+                int doubleTo = to + forward;
+                if ((from >>> 3) == startRank && (occupied & (1L << doubleTo)) == 0 && (mask & (1L << doubleTo)) != 0) {
+                    moves.add(Move.encode(from, doubleTo, Move.DOUBLE_PUSH));
+                }
+            }
+        }
+
+        // Captures
+        long captures = Bitboards.PAWN_ATTACKS[us][from] & pos.occupancy(us ^ 1) & mask;
+        while (captures != 0) {
+            to = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            if (to >= 56 || to < 8) {
+                addPromotions(from, to, true, moves);
+            } else {
+                moves.add(Move.encode(from, to, Move.CAPTURE));
+            }
+        }
+    }
+
+    private static void addPromotions(int from, int to, boolean capture, MoveList moves) {
+        for (int type = Position.QUEEN; type >= Position.KNIGHT; type--) {
+            moves.add(Move.encode(from, to, Move.promotionFlags(type, capture)));
+        }
+    }
+
+    public static void addKnightMoves(Position pos, int from, MoveList moves) {
+        addTargets(pos, from, Bitboards.KNIGHT_ATTACKS[from], moves);
+    }
+
+    public static void addBishopMoves(Position pos, int from, MoveList moves) {
+        addTargets(pos, from, Bitboards.bishopAttacks(from, pos.occupied()), moves);
+    }
+
+    public static void addRookMoves(Position pos, int from, MoveList moves) {
+        addTargets(pos, from, Bitboards.rookAttacks(from, pos.occupied()), moves);
+    }
+
+    public static void addQueenMoves(Position pos, int from, MoveList moves) {
+        addTargets(pos, from, Bitboards.queenAttacks(from, pos.occupied()), moves);
+    }
+
+    public static void addKingMoves(Position pos, int from, MoveList moves) {
+        int us = Position.colorOf(pos.pieceAt(from));
+        addTargets(pos, from, Bitboards.KING_ATTACKS[from], moves);
+        if (us != pos.sideToMove()) {
+            return;
+        }
+
+        addCastling(pos, us, from, pos.attacks(us ^ 1), moves);
+    }
+
+    // Castling: rights, an empty path and no attacked square between the king's start and end
+    private static void addCastling(Position pos, int us, int from, long attacked, MoveList moves) {
+        int rights = pos.castlingRights();
+        long occupied = pos.occupied();
+        int kingside = us == Position.WHITE ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+        int queenside = us == Position.WHITE ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+        if ((rights & (kingside | queenside)) == 0) {
+            return;
+        }
+        if ((rights & kingside) != 0 && (occupied & (3L << (from + 1))) == 0
+            && (attacked & (7L << from)) == 0) {
+            moves.add(Move.encode(from, from + 2, Move.KING_CASTLE));
+        }
+        if ((rights & queenside) != 0 && (occupied & (7L << (from - 3))) == 0
+            && (attacked & (7L << (from - 2))) == 0) {
+            moves.add(Move.encode(from, from - 2, Move.QUEEN_CASTLE));
+        }
+    }
+
+    private static void addTargets(Position pos, int from, long attacks, MoveList moves) {
+        int us = Position.colorOf(pos.pieceAt(from));
+        long targets = attacks & ~pos.occupancy(us);
+        long enemies = pos.occupancy(us ^ 1);
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(Move.encode(from, to, (enemies & (1L << to)) != 0 ? Move.CAPTURE : Move.QUIET));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.chess;
+
+// Caller-owned, reusable list of packed moves (see Move). Clearing it does not allocate.
+public class MoveList {
+    public static final int MAX_MOVES = 256;
+
+    private final int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(MAX_MOVES);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+    }
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // Drops every move from the given index on
+    public void truncate(int newSize) {
+        size = newSize;
+    }
+
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Finds the move between two squares, preferring a queen promotion when several match
+    public int find(int from, int to) {
+        int found = Move.NONE;
+        for (int i = 0; i < size; i++) {
+            int move = moves[i];
+            if (Move.from(move) == from && Move.to(move) == to) {
+                if (!Move.isPromotion(move) || Move.promotionType(move) == Position.QUEEN) {
+                    return move;
+                }
+                found = move;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,148 @@
+package com.chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Lazy SMP: the main search runs on the calling thread while helper threads search their own
+// copies of the position over the same TranspositionTable. Helpers share nothing but the table;
+// their results only reach the main search through the entries they store. Odd helpers start
+// one ply deeper so the threads spread over different iterations instead of duplicating work.
+public class ParallelSearch {
+    private final int threads;
+    private final TranspositionTable table;
+    private final ExecutorService helpers;
+    private final List<Search> running = new ArrayList<>();
+    private Search main;
+    private volatile Tablebases tablebases;
+
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        this.threads = threads;
+        this.table = table;
+        this.helpers = threads > 1 ? Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    // Same contract as Search.search; the position is copied, never modified. The result holds
+    // the main thread's principal variation and the node count summed over all threads. Searches
+    // are serialized: a new one waits until a stopped one has collected its helpers.
+    public synchronized SearchResult search(Position position, int maxDepth, long timeLimitMillis) {
+        long start = System.nanoTime();
+        Search mainSearch = new Search(position.copy(), table);
+        mainSearch.setTablebases(tablebases);
+        List<Search> helperSearches = new ArrayList<>();
+        List<Future<SearchResult>> futures = new ArrayList<>();
+        synchronized (running) {
+            main = mainSearch;
+            for (int i = 1; i < threads; i++) {
+                Search helper = new Search(position.copy(), table);
+                helper.setTablebases(tablebases);
+                helperSearches.add(helper);
+                running.add(helper);
+            }
+        }
+        for (int i = 0; i < helperSearches.size(); i++) {
+            Search helper = helperSearches.get(i);
+            int startDepth = 1 + ((i + 1) & 1);
+            futures.add(helpers.submit(() -> helper.searchAsHelper(startDepth, maxDepth)));
+        }
+
+        SearchResult result;
+        try {
+            result = mainSearch.search(maxDepth, timeLimitMillis);
+        } finally {
+            for (Search helper : helperSearches) {
+                helper.stop();
+            }
+        }
+
+        long nodes = mainSearch.getNodes();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search helper failed", e.getCause());
+            }
+            nodes += helperSearches.get(i).getNodes();
+        }
+        synchronized (running) {
+            main = null;
+            running.clear();
+        }
+        if (result == null) {
+            return null;
+        }
+        return new SearchResult(result.getPrincipalVariation(), result.getScore(), result.getDepth(), nodes,
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Asks the running search, helpers included, to return as soon as possible
+    public void stop() {
+        synchronized (running) {
+            if (main != null) {
+                main.stop();
+            }
+            for (Search helper : running) {
+                helper.stop();
+            }
+        }
+    }
+
+    // Tablebases for the searches that start after this call; null turns them off
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void shutdown() {
+        stop();
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    // Scaling report: time to a fixed depth and nodes per second for 1, 2, 4 ... threads.
+    // Usage: ParallelSearch [depth [maxThreads [fen]]]
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Position position = args.length > 2
+            ? Position.fromFen(String.join(" ", java.util.Arrays.copyOfRange(args, 2, args.length)))
+            : Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+
+        System.out.printf("%-8s %-8s %-12s %-10s %-12s %-8s %-8s%n",
+            "threads", "depth", "nodes", "ms", "nps", "nps x", "time x");
+        long baseNps = 0;
+        long baseTime = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            ParallelSearch search = new ParallelSearch(threads, new TranspositionTable(64));
+            SearchResult result = search.search(position, depth, 0);
+            search.shutdown();
+            long time = Math.max(1, result.getTimeMillis());
+            if (threads == 1) {
+                baseNps = result.getNodesPerSecond();
+                baseTime = time;
+            }
+            System.out.printf("%-8d %-8d %-12d %-10d %-12d %-8.2f %-8.2f%n",
+                threads, result.getDepth(), result.getNodes(), time, result.getNodesPerSecond(),
+                (double) result.getNodesPerSecond() / Math.max(1, baseNps), (double) baseTime / time);
+            if (threads >= maxThreads) {
+                break;
+            }
+        }
+    }
+}
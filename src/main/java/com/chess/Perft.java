@@ -0,0 +1,123 @@
+package com.chess;
+
+// Perft driver: counts the leaf nodes of the legal move tree to a fixed depth. Running it without
+// arguments checks the reference positions below and exits non-zero on any mismatch, so it can gate
+// changes to the move generator. With "depth [fen]" it prints a per-move breakdown instead.
+public class Perft {
+    // name, FEN, depth, expected node count
+    private static final String[][] SUITE = {
+        {"start", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "5", "4865609"},
+        {"kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", "4", "4085603"},
+        {"position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", "6", "11030083"},
+        {"position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", "5", "15833292"},
+        {"position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", "4", "2103487"},
+        {"position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", "4", "3894594"},
+        {"en passant discovered check", "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1", "6", "1440467"},
+        {"en passant pinned on rank", "3k4/3p4/8/K1P4r/8/8/8/8 b - - 0 1", "6", "1134888"},
+        {"en passant bishop pin", "8/8/4k3/8/2p5/8/B2P2K1/8 w - - 0 1", "6", "1015133"},
+        {"castling rights", "r3k2r/1b4bq/8/8/8/8/7B/R3K2R w KQkq - 0 1", "4", "1274206"},
+        {"castling prevented", "r3k2r/8/3Q4/8/8/5q2/8/R3K2R b KQkq - 0 1", "4", "1720476"},
+        {"promotion out of check", "2K2r2/4P3/8/8/8/8/8/3k4 w - - 0 1", "6", "3821001"},
+        {"discovered check", "8/8/1P2K3/8/2n5/1q6/8/5k2 b - - 0 1", "5", "1004658"},
+        {"promotion", "4k3/1P6/8/8/8/8/K7/8 w - - 0 1", "6", "217342"},
+        {"underpromotion", "8/P1k5/K7/8/8/8/8/8 w - - 0 1", "6", "92683"},
+        {"self stalemate", "K1k5/8/P7/8/8/8/8/8 w - - 0 1", "6", "2217"},
+        {"stalemate and checkmate", "8/k1P5/8/1K6/8/8/8/8 w - - 0 1", "7", "567584"},
+        {"double check", "8/8/2k5/5q2/5n2/8/5K2/8 b - - 0 1", "4", "23527"},
+    };
+
+    private static final int MAX_DEPTH = 64;
+
+    // FENs of the reference positions, which also cover the edge cases of other move code
+    static String[] referenceFens() {
+        String[] fens = new String[SUITE.length];
+        for (int i = 0; i < SUITE.length; i++) {
+            fens[i] = SUITE[i][1];
+        }
+        return fens;
+    }
+
+    private final Position position;
+    private final MoveList[] moveLists = new MoveList[MAX_DEPTH + 1];
+
+    public Perft(Position position) {
+        this.position = position;
+        for (int i = 0; i <= MAX_DEPTH; i++) {
+            moveLists[i] = new MoveList();
+        }
+    }
+
+    public long perft(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = moveLists[depth];
+        moves.clear();
+        MoveGenerator.generateLegal(position, moves);
+        // Bulk counting: the legal moves at the last ply are the leaves
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            position.makeMove(moves.get(i));
+            nodes += perft(depth - 1);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+
+    // Node count below each root move, for narrowing down a mismatch
+    public long divide(int depth) {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(position, moves);
+        long total = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            position.makeMove(move);
+            long nodes = perft(depth - 1);
+            position.unmakeMove();
+            System.out.println(Move.toString(move) + ": " + nodes);
+            total += nodes;
+        }
+        return total;
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            int depth = Integer.parseInt(args[0]);
+            String fen = args.length > 1 ? String.join(" ", java.util.Arrays.copyOfRange(args, 1, args.length))
+                : SUITE[0][1];
+            long start = System.nanoTime();
+            long nodes = new Perft(Position.fromFen(fen)).divide(depth);
+            report("total", nodes, System.nanoTime() - start);
+            return;
+        }
+
+        boolean failed = false;
+        long totalNodes = 0;
+        long totalTime = 0;
+        for (String[] test : SUITE) {
+            int depth = Integer.parseInt(test[2]);
+            long expected = Long.parseLong(test[3]);
+            long start = System.nanoTime();
+            long nodes = new Perft(Position.fromFen(test[1])).perft(depth);
+            long elapsed = System.nanoTime() - start;
+            totalNodes += nodes;
+            totalTime += elapsed;
+            boolean passed = nodes == expected;
+            failed |= !passed;
+            report((passed ? "PASS " : "FAIL ") + test[0] + " depth " + depth
+                + (passed ? "" : " expected " + expected), nodes, elapsed);
+        }
+        report("suite", totalNodes, totalTime);
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static void report(String label, long nodes, long nanos) {
+        long millis = Math.max(1, nanos / 1_000_000);
+        System.out.println(label + ": " + nodes + " nodes in " + millis + " ms (" + (nodes * 1000 / millis) + " nodes/s)");
+    }
+}
@@ -0,0 +1,67 @@
+package com.chess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// One game as read from PGN: tag pairs, SAN move tokens and the result. Moves are kept as text so
+// reading stays cheap; resolveMoves() checks them against the legal move generator.
+public class PgnGame {
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private final List<String> sanMoves = new ArrayList<>();
+    private String result = "*";
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public void setTag(String name, String value) {
+        tags.put(name, value);
+    }
+
+    public List<String> getSanMoves() {
+        return sanMoves;
+    }
+
+    public void addSanMove(String san) {
+        sanMoves.add(san);
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    // The position the game starts from: the FEN tag when present, otherwise the standard start
+    public Position startPosition() {
+        String fen = tags.get("FEN");
+        return fen != null ? Position.fromFen(fen) : Position.startPosition();
+    }
+
+    // Resolves every SAN token to a packed move (see Move). Throws IllegalArgumentException naming
+    // the first move that is illegal or ambiguous.
+    public int[] resolveMoves() {
+        Position pos = startPosition();
+        MoveList legal = new MoveList();
+        int[] moves = new int[sanMoves.size()];
+        for (int ply = 0; ply < moves.length; ply++) {
+            legal.clear();
+            MoveGenerator.generateLegal(pos, legal);
+            try {
+                moves[ply] = San.parse(pos, sanMoves.get(ply), legal);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Ply " + (ply + 1) + ": " + e.getMessage(), e);
+            }
+            pos.makeMove(moves[ply]);
+        }
+        return moves;
+    }
+}
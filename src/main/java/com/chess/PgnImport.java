@@ -0,0 +1,150 @@
+package com.chess;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Import pipeline: one thread streams games out of a PGN file while worker threads resolve their
+// SAN moves in parallel. A bounded queue between them keeps memory constant for any file size.
+public class PgnImport {
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final PgnGame END = new PgnGame();
+
+    private final int threads;
+    private final LongAdder games = new LongAdder();
+    private final LongAdder invalidGames = new LongAdder();
+    private final LongAdder plies = new LongAdder();
+
+    public PgnImport(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    // Reads every game, validates it on the worker threads and hands valid games with their
+    // resolved moves to the consumer, which may be called concurrently. Invalid games are
+    // counted and reported to onError. Anything else a worker throws, including an exception or
+    // error from the consumer, stops the import and is rethrown here.
+    public void run(PgnReader reader, ValidGameConsumer consumer, Consumer<String> onError)
+            throws IOException, InterruptedException {
+        BlockingQueue<PgnGame> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.execute(() -> {
+                try {
+                    for (PgnGame game = queue.take(); game != END; game = queue.take()) {
+                        validate(game, consumer, onError);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+        try {
+            // Offer with a timeout rather than put, so a full queue whose workers have failed
+            // cannot block the reader
+            PgnGame game = reader.next();
+            while (game != null && failure.get() == null) {
+                if (queue.offer(game, 10, TimeUnit.MILLISECONDS)) {
+                    game = reader.next();
+                }
+            }
+        } finally {
+            for (int i = 0; i < threads; i++) {
+                while (!queue.offer(END, 10, TimeUnit.MILLISECONDS)) {
+                    if (failure.get() != null) {
+                        queue.clear();
+                    }
+                }
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else if (e != null) {
+            throw new IllegalStateException("PGN import worker failed", e);
+        }
+    }
+
+    private void validate(PgnGame game, ValidGameConsumer consumer, Consumer<String> onError) {
+        games.increment();
+        int[] moves;
+        try {
+            moves = game.resolveMoves();
+        } catch (IllegalArgumentException e) {
+            invalidGames.increment();
+            if (onError != null) {
+                onError.accept(describe(game) + ": " + e.getMessage());
+            }
+            return;
+        }
+        plies.add(moves.length);
+        if (consumer != null) {
+            consumer.accept(game, moves);
+        }
+    }
+
+    private static String describe(PgnGame game) {
+        return game.getTag("White") + " - " + game.getTag("Black") + " (" + game.getTag("Date") + ")";
+    }
+
+    public long getGames() {
+        return games.sum();
+    }
+
+    public long getInvalidGames() {
+        return invalidGames.sum();
+    }
+
+    public long getPlies() {
+        return plies.sum();
+    }
+
+    public interface ValidGameConsumer {
+        void accept(PgnGame game, int[] moves);
+    }
+
+    // Validates a PGN file and reports import speed. Usage: PgnImport file.pgn [threads]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: PgnImport file.pgn [threads]");
+            System.exit(2);
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        PgnImport importer = new PgnImport(threads);
+        LongAdder reported = new LongAdder();
+        long start = System.nanoTime();
+        try (PgnReader reader = new PgnReader(new InputStreamReader(
+                Files.newInputStream(Paths.get(args[0])), StandardCharsets.ISO_8859_1))) {
+            importer.run(reader, null, error -> {
+                reported.increment();
+                if (reported.sum() <= 10) {
+                    System.err.println("Invalid game " + error);
+                }
+            });
+        }
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        System.out.printf("%d games (%d invalid), %d plies on %d threads in %d ms: %d games/s, %d plies/s%n",
+            importer.getGames(), importer.getInvalidGames(), importer.getPlies(), threads,
+            elapsedNanos / 1_000_000, importer.getGames() * 1_000_000_000L / elapsedNanos,
+            importer.getPlies() * 1_000_000_000L / elapsedNanos);
+    }
+}
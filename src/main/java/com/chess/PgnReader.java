@@ -0,0 +1,228 @@
+package com.chess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+// Streaming PGN reader: returns one game at a time from a Reader of any size, holding only the
+// current game in memory. Comments, variations, NAGs and move numbers are skipped; SAN tokens are
+// kept as text (see PgnGame.resolveMoves).
+public class PgnReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    // Whether the next character starts a line, for '%' escape lines
+    private boolean atLineStart = true;
+    private final StringBuilder token = new StringBuilder(32);
+    private long gamesRead;
+
+    public PgnReader(Reader in) {
+        this.in = in;
+    }
+
+    // The next game, or null at the end of the input
+    public PgnGame next() throws IOException {
+        PgnGame game = null;
+        boolean inMovetext = false;
+        while (true) {
+            int c = peek();
+            if (c < 0) {
+                break;
+            }
+            if (Character.isWhitespace(c)) {
+                read();
+            } else if (c == '[') {
+                if (inMovetext) {
+                    break; // Tags of the next game; the previous one had no result token
+                }
+                if (game == null) {
+                    game = new PgnGame();
+                }
+                readTag(game);
+            } else if (c == '{') {
+                skipPast('}');
+            } else if (c == ';') {
+                skipPast('\n');
+            } else if (c == '%' && atLineStart) {
+                skipPast('\n'); // Escape line
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == ')' || c == ']' || c == '}') {
+                read();
+            } else {
+                if (game == null) {
+                    game = new PgnGame();
+                }
+                inMovetext = true;
+                readToken();
+                if (addToken(game)) {
+                    break; // Result token ends the game
+                }
+            }
+        }
+        if (game != null) {
+            gamesRead++;
+        }
+        return game;
+    }
+
+    public long getGamesRead() {
+        return gamesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Classifies a movetext token; returns true when it is the game result
+    private boolean addToken(PgnGame game) {
+        int length = token.length();
+        if (length == 0) {
+            return false;
+        }
+        if (isResult()) {
+            game.setResult(token.toString());
+            return true;
+        }
+        char first = token.charAt(0);
+        if (first == '$') {
+            return false; // Numeric annotation glyph
+        }
+        if (first == '0' && length >= 3 && token.charAt(1) == '-') {
+            game.addSanMove(token.toString()); // Castling written with zeros
+            return false;
+        }
+        // Move numbers like "12." or "12...", possibly glued to the move as in "12.e4"
+        int start = 0;
+        while (start < length && Character.isDigit(token.charAt(start))) {
+            start++;
+        }
+        if (start < length && token.charAt(start) != '.') {
+            start = 0;
+        }
+        while (start < length && token.charAt(start) == '.') {
+            start++;
+        }
+        if (start < length) {
+            game.addSanMove(token.substring(start));
+        }
+        return false;
+    }
+
+    private boolean isResult() {
+        switch (token.length()) {
+            case 1:
+                return token.charAt(0) == '*';
+            case 3:
+                return "1-0".contentEquals(token) || "0-1".contentEquals(token);
+            case 7:
+                return "1/2-1/2".contentEquals(token);
+            default:
+                return false;
+        }
+    }
+
+    private void readToken() throws IOException {
+        token.setLength(0);
+        int c;
+        while ((c = peek()) >= 0 && !Character.isWhitespace(c) && "{}()[];".indexOf(c) < 0) {
+            token.append((char) c);
+            read();
+        }
+    }
+
+    private void readTag(PgnGame game) throws IOException {
+        read(); // '['
+        skipWhitespace();
+        token.setLength(0);
+        int c;
+        while ((c = peek()) >= 0 && !Character.isWhitespace(c) && c != '"' && c != ']') {
+            token.append((char) c);
+            read();
+        }
+        String name = token.toString();
+        skipWhitespace();
+        token.setLength(0);
+        if (peek() == '"') {
+            read();
+            while ((c = peek()) >= 0 && c != '"') {
+                read();
+                if (c == '\\' && peek() >= 0) {
+                    c = peek();
+                    read();
+                }
+                token.append((char) c);
+            }
+            if (peek() == '"') {
+                read();
+            }
+        }
+        skipPast(']');
+        if (!name.isEmpty()) {
+            game.setTag(name, token.toString());
+        }
+    }
+
+    // Skips a possibly nested variation, including any comments inside it
+    private void skipVariation() throws IOException {
+        int depth = 0;
+        int c;
+        while ((c = peek()) >= 0) {
+            read();
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (--depth == 0) {
+                    return;
+                }
+            } else if (c == '{') {
+                skipPast('}');
+            } else if (c == ';') {
+                skipPast('\n');
+            }
+        }
+    }
+
+    private void skipPast(char end) throws IOException {
+        int c;
+        while ((c = peek()) >= 0) {
+            read();
+            if (c == end) {
+                return;
+            }
+        }
+    }
+
+    private void skipWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) >= 0 && Character.isWhitespace(c)) {
+            read();
+        }
+    }
+
+    // Consumes the character peek() returned
+    private int read() throws IOException {
+        int c = peek();
+        if (c >= 0) {
+            position++;
+            atLineStart = c == '\n';
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+}
@@ -0,0 +1,84 @@
+package com.chess;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+// Streaming PGN writer: each game is written as soon as it is passed in. Movetext is SAN with
+// move numbers, wrapped below 80 columns as the PGN export format asks.
+public class PgnWriter implements Closeable, Flushable {
+    private static final int LINE_LIMIT = 79;
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(LINE_LIMIT + 16);
+    private final StringBuilder san = new StringBuilder(16);
+    private final MoveList legal = new MoveList();
+
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    // Writes the tags, then the moves played from the start position (which is not modified)
+    public void writeGame(Map<String, String> tags, Position start, int[] moves, String result) throws IOException {
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            out.write('[');
+            out.write(tag.getKey());
+            out.write(" \"");
+            out.write(tag.getValue().replace("\\", "\\\\").replace("\"", "\\\""));
+            out.write("\"]\n");
+        }
+        out.write('\n');
+
+        Position pos = start.copy();
+        line.setLength(0);
+        for (int i = 0; i < moves.length; i++) {
+            san.setLength(0);
+            if (pos.sideToMove() == Position.WHITE) {
+                san.append(pos.fullmoveNumber()).append(". ");
+            } else if (i == 0) {
+                san.append(pos.fullmoveNumber()).append("... ");
+            }
+            legal.clear();
+            MoveGenerator.generateLegal(pos, legal);
+            if (!legal.contains(moves[i])) {
+                throw new IllegalArgumentException("Illegal move " + Move.toString(moves[i]) + " at ply " + (i + 1));
+            }
+            San.append(pos, moves[i], legal, san);
+            appendWord(san);
+            pos.makeMove(moves[i]);
+        }
+        san.setLength(0);
+        san.append(result);
+        appendWord(san);
+        out.write(line.toString());
+        out.write("\n\n");
+    }
+
+    public void writeGame(PgnGame game) throws IOException {
+        writeGame(game.getTags(), game.startPosition(), game.resolveMoves(), game.getResult());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void appendWord(CharSequence word) throws IOException {
+        if (line.length() > 0 && line.length() + 1 + word.length() > LINE_LIMIT) {
+            out.write(line.toString());
+            out.write('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        line.append(word);
+    }
+}
@@ -0,0 +1,49 @@
+package com.chess;
+
+import java.awt.Image;
+import javax.swing.ImageIcon;
+
+// Process-wide sprite cache: each of the 12 piece images is decoded once, on first use, and
+// shared by every piece on every board
+public final class PieceImages {
+    private static final String NAMES = "pnbrqk";
+    private static final Image[] IMAGES = new Image[12];
+    private static final boolean[] LOADED = new boolean[12];
+
+    private PieceImages() {
+    }
+
+    public static Image get(boolean isWhite, char symbol) {
+        int type = NAMES.indexOf(Character.toLowerCase(symbol));
+        if (type < 0) {
+            throw new IllegalArgumentException("Unknown piece symbol: " + symbol);
+        }
+        return get(Position.makePiece(isWhite ? Position.WHITE : Position.BLACK, type));
+    }
+
+    // Image for a piece code (see Position.makePiece), or null if the sprite could not be loaded
+    public static synchronized Image get(int piece) {
+        if (!LOADED[piece]) {
+            IMAGES[piece] = load(piece);
+            LOADED[piece] = true;
+        }
+        return IMAGES[piece];
+    }
+
+    private static Image load(int piece) {
+        boolean isWhite = Position.colorOf(piece) == Position.WHITE;
+        String imagePath = "/svg/" + (isWhite ? "w" : "b") + NAMES.charAt(Position.typeOf(piece)) + ".png";
+        Diagnostics.log(Diagnostics.Level.DEBUG, "Attempting to load image: " + imagePath);
+        try {
+            Image image = new ImageIcon(PieceImages.class.getResource(imagePath)).getImage();
+            if (Diagnostics.isEnabled(Diagnostics.Level.INFO)) {
+                Diagnostics.log(Diagnostics.Level.INFO, "Loaded image: " + imagePath + " ("
+                    + image.getWidth(null) + "x" + image.getHeight(null) + ")");
+            }
+            return image;
+        } catch (Exception e) {
+            Diagnostics.log(Diagnostics.Level.ERROR, "Error loading image: " + imagePath + " - " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,771 @@
+package com.chess;
+
+import java.util.Arrays;
+
+// Headless chess position backed by bitboards. One long per piece type and color is the
+// authoritative state; the mailbox array only speeds up "what is on this square" lookups.
+public class Position {
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int NO_PIECE = -1;
+    public static final int NO_SQUARE = -1;
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    private static final String PIECE_CHARS = "PNBRQKpnbrqk";
+    private static final int[] PIECE_OF_CHAR = new int[128];
+
+    // Material fields of the pieces that can still force mate: pawns, rooks and queens
+    private static final long MATING_MATERIAL = 0xFL << (4 * PAWN) | 0xFL << (4 * ROOK) | 0xFL << (4 * QUEEN)
+        | 0xFL << (4 * (6 + PAWN)) | 0xFL << (4 * (6 + ROOK)) | 0xFL << (4 * (6 + QUEEN));
+
+    // Layout of one undo log entry (see undoLog)
+    private static final int UNDO_STRIDE = 4;
+    private static final long[] NO_HISTORY = new long[0];
+    private static final int UNDO_KEY = 1;
+    private static final int UNDO_ATTACKS = 2;
+    private static final int UNDO_CAPTURED_SHIFT = 16; // Piece code + 1, 0 for none
+    private static final int UNDO_CASTLING_SHIFT = 20;
+    private static final int UNDO_EP_SHIFT = 24;       // Square + 1, 0 for none
+    private static final int UNDO_VALID_SHIFT = 31;    // attackMapsValid
+    private static final int UNDO_HALFMOVE_SHIFT = 33;
+
+    // Castling rights that survive a move touching the given square
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(PIECE_OF_CHAR, NO_PIECE);
+        for (int piece = 0; piece < PIECE_CHARS.length(); piece++) {
+            PIECE_OF_CHAR[PIECE_CHARS.charAt(piece)] = piece;
+        }
+        Arrays.fill(CASTLING_MASK, 0xF);
+        CASTLING_MASK[0] = ~WHITE_QUEENSIDE & 0xF;
+        CASTLING_MASK[7] = ~WHITE_KINGSIDE & 0xF;
+        CASTLING_MASK[4] = ~(WHITE_KINGSIDE | WHITE_QUEENSIDE) & 0xF;
+        CASTLING_MASK[56] = ~BLACK_QUEENSIDE & 0xF;
+        CASTLING_MASK[63] = ~BLACK_KINGSIDE & 0xF;
+        CASTLING_MASK[60] = ~(BLACK_KINGSIDE | BLACK_QUEENSIDE) & 0xF;
+    }
+
+    private final long[] pieces = new long[12];
+    private final long[] colors = new long[2];
+    private long occupied;
+    private final int[] mailbox = new int[64];
+    private final int[] kingSquares = {NO_SQUARE, NO_SQUARE};
+    private int sideToMove;
+    private int castlingRights;
+    private int epSquare;
+    private int halfmoveClock;
+    private int fullmoveNumber;
+    private long key;
+    // Piece counts packed in 4-bit fields, one per piece code, kept up to date by put/removePiece
+    private long material;
+    // Evaluation terms kept up to date the same way: packed piece-square score and game phase
+    private int psqt;
+    private int phase;
+
+    // Squares attacked by each side, computed at most once per position and restored on unmake
+    private final long[] attackMaps = new long[2];
+    private int attackMapsValid;
+
+    // Undo log: UNDO_STRIDE longs per ply made on this position, all in one preallocated array.
+    // The first packs the move and every scalar it overwrites; the others keep the Zobrist key
+    // and both attack maps. It doubles in the rare game that outgrows it; otherwise make and
+    // unmake never allocate.
+    private long[] undoLog = new long[256 * UNDO_STRIDE];
+    private int ply;
+    // Keys of the positions played before the first undo log entry, oldest first, as carried over
+    // by copy() and PositionSnapshot so that repetitions() still sees the game before them
+    private long[] history = NO_HISTORY;
+
+    public Position() {
+        Arrays.fill(mailbox, NO_PIECE);
+        epSquare = NO_SQUARE;
+        fullmoveNumber = 1;
+    }
+
+    public static Position startPosition() {
+        Position pos = new Position();
+        int[] backRank = {ROOK, KNIGHT, BISHOP, QUEEN, KING, BISHOP, KNIGHT, ROOK};
+        for (int file = 0; file < 8; file++) {
+            pos.putPiece(file, makePiece(WHITE, backRank[file]));
+            pos.putPiece(8 + file, makePiece(WHITE, PAWN));
+            pos.putPiece(48 + file, makePiece(BLACK, PAWN));
+            pos.putPiece(56 + file, makePiece(BLACK, backRank[file]));
+        }
+        pos.castlingRights = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+        pos.key = pos.computeKey();
+        return pos;
+    }
+
+    public static Position fromFen(String fen) {
+        Position pos = new Position();
+        pos.setFen(fen);
+        return pos;
+    }
+
+    public void setFen(CharSequence fen) {
+        setFen(fen, 0, fen.length());
+    }
+
+    // Replaces the whole state, undo history included, with the FEN in fen[start, end). Parses
+    // in place without allocating, so one Position can be reused for millions of EPD lines. The
+    // clocks are optional, as in EPD. Returns the index just past the last field read, where EPD
+    // operations start. Throws IllegalArgumentException for an invalid or illegal position, after
+    // which the state is unspecified until the next successful setFen.
+    public int setFen(CharSequence fen, int start, int end) {
+        clear();
+        int i = skipSpaces(fen, start, end);
+        int rank = 7;
+        int file = 0;
+        for (; i < end && !isSpace(fen.charAt(i)); i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (file != 8 || rank == 0) {
+                    throw invalidFen(fen, start, end);
+                }
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                int piece = c < PIECE_OF_CHAR.length ? PIECE_OF_CHAR[c] : NO_PIECE;
+                if (piece == NO_PIECE || file > 7 || (typeOf(piece) == PAWN && (rank == 0 || rank == 7))) {
+                    throw invalidFen(fen, start, end);
+                }
+                if (typeOf(piece) == KING && kingSquares[colorOf(piece)] != NO_SQUARE) {
+                    throw invalidFen(fen, start, end); // Two kings of one color
+                }
+                putPiece(rank * 8 + file, piece);
+                file++;
+            }
+            if (file > 8) {
+                throw invalidFen(fen, start, end);
+            }
+        }
+        if (rank != 0 || file != 8 || kingSquares[WHITE] == NO_SQUARE || kingSquares[BLACK] == NO_SQUARE) {
+            throw invalidFen(fen, start, end);
+        }
+
+        i = skipSpaces(fen, i, end);
+        char side = i < end ? fen.charAt(i++) : ' ';
+        if (side != 'w' && side != 'b' || (i < end && !isSpace(fen.charAt(i)))) {
+            throw invalidFen(fen, start, end);
+        }
+        sideToMove = side == 'w' ? WHITE : BLACK;
+
+        i = skipSpaces(fen, i, end);
+        if (i < end && fen.charAt(i) == '-') {
+            i++;
+        } else {
+            for (; i < end && !isSpace(fen.charAt(i)); i++) {
+                int right = "KQkq".indexOf(fen.charAt(i));
+                if (right < 0) {
+                    throw invalidFen(fen, start, end);
+                }
+                castlingRights |= 1 << right;
+            }
+        }
+        if (i < end && !isSpace(fen.charAt(i))) {
+            throw invalidFen(fen, start, end);
+        }
+        // Rights whose king or rook is not on its home square could never be used
+        for (int right = 0; right < 4; right++) {
+            int color = right < 2 ? WHITE : BLACK;
+            int rookSquare = (color == WHITE ? 0 : 56) + ((right & 1) == 0 ? 7 : 0);
+            if (mailbox[color == WHITE ? 4 : 60] != makePiece(color, KING) || mailbox[rookSquare] != makePiece(color, ROOK)) {
+                castlingRights &= ~(1 << right);
+            }
+        }
+
+        i = skipSpaces(fen, i, end);
+        if (i < end && fen.charAt(i) == '-') {
+            i++;
+        } else if (i + 1 < end) {
+            int epFile = fen.charAt(i) - 'a';
+            int epRank = fen.charAt(i + 1) - '1';
+            if (epFile < 0 || epFile > 7 || epRank != (sideToMove == WHITE ? 5 : 2)) {
+                throw invalidFen(fen, start, end);
+            }
+            epSquare = epRank * 8 + epFile;
+            i += 2;
+        } else {
+            throw invalidFen(fen, start, end);
+        }
+
+        // Optional clocks; anything else that follows is left to the caller (EPD operations)
+        int next = skipSpaces(fen, i, end);
+        if (next < end && Character.isDigit(fen.charAt(next))) {
+            int clockEnd = skipNumber(fen, next, end);
+            halfmoveClock = parseNumber(fen, next, clockEnd);
+            i = clockEnd;
+            next = skipSpaces(fen, i, end);
+            if (next < end && Character.isDigit(fen.charAt(next))) {
+                clockEnd = skipNumber(fen, next, end);
+                fullmoveNumber = Math.max(1, parseNumber(fen, next, clockEnd));
+                i = clockEnd;
+            }
+        }
+        if (i < end && !isSpace(fen.charAt(i))) {
+            throw invalidFen(fen, start, end);
+        }
+        if (isInCheck(sideToMove ^ 1)) {
+            throw new IllegalArgumentException("Side not to move is in check: " + fen.subSequence(start, end));
+        }
+        key = computeKey();
+        return i;
+    }
+
+    // Empty board, white to move, no history
+    private void clear() {
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(colors, 0L);
+        Arrays.fill(mailbox, NO_PIECE);
+        kingSquares[WHITE] = NO_SQUARE;
+        kingSquares[BLACK] = NO_SQUARE;
+        occupied = 0;
+        sideToMove = WHITE;
+        castlingRights = 0;
+        epSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        key = 0;
+        material = 0;
+        psqt = 0;
+        phase = 0;
+        attackMapsValid = 0;
+        ply = 0;
+        history = NO_HISTORY;
+    }
+
+    private static int skipSpaces(CharSequence s, int i, int end) {
+        while (i < end && isSpace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static int skipNumber(CharSequence s, int i, int end) {
+        while (i < end && Character.isDigit(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int parseNumber(CharSequence s, int start, int end) {
+        if (end - start > 9) {
+            throw new IllegalArgumentException("Invalid FEN clock: " + s.subSequence(start, end));
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (s.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    private static IllegalArgumentException invalidFen(CharSequence fen, int start, int end) {
+        return new IllegalArgumentException("Invalid FEN: " + fen.subSequence(start, end));
+    }
+
+    // Independent copy of the current state. The undo history is not copied, only the keys that
+    // repetitions() needs.
+    public Position copy() {
+        Position copy = new Position();
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    // Overwrites this position with the current state of another, as copy() does, reusing this
+    // position's arrays
+    public void copyFrom(Position other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+        System.arraycopy(other.kingSquares, 0, kingSquares, 0, kingSquares.length);
+        occupied = other.occupied;
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        epSquare = other.epSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        key = other.key;
+        material = other.material;
+        psqt = other.psqt;
+        phase = other.phase;
+        attackMapsValid = 0;
+        ply = 0;
+        history = other.recentKeys();
+    }
+
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = mailbox[rank * 8 + file];
+                if (piece == NO_PIECE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(PIECE_CHARS.charAt(piece));
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (rank > 0) {
+                fen.append('/');
+            }
+        }
+        fen.append(sideToMove == WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            fen.append('-');
+        }
+        for (int right = 0; right < 4; right++) {
+            if ((castlingRights & (1 << right)) != 0) {
+                fen.append("KQkq".charAt(right));
+            }
+        }
+        fen.append(' ');
+        if (epSquare == NO_SQUARE) {
+            fen.append('-');
+        } else {
+            Move.appendSquare(fen, epSquare);
+        }
+        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return fen.toString();
+    }
+
+    // Immutable value of the current state, safe to hand to other threads
+    public PositionSnapshot snapshot() {
+        return PositionSnapshot.of(this);
+    }
+
+    // Sets the non-board state once the pieces are placed, then recomputes the key
+    void setState(int sideToMove, int castlingRights, int epSquare, int halfmoveClock, int fullmoveNumber) {
+        this.sideToMove = sideToMove;
+        this.castlingRights = castlingRights;
+        this.epSquare = epSquare;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+        attackMapsValid = 0;
+        key = computeKey();
+    }
+
+    // ChessBoard uses row 0 for the eighth rank; the engine uses a1 = 0
+    public static int toSquare(int row, int col) {
+        return (7 - row) * 8 + col;
+    }
+
+    public static int rowOf(int sq) {
+        return 7 - (sq >>> 3);
+    }
+
+    public static int colOf(int sq) {
+        return sq & 7;
+    }
+
+    public static int makePiece(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static int colorOf(int piece) {
+        return piece / 6;
+    }
+
+    public static int typeOf(int piece) {
+        return piece % 6;
+    }
+
+    public static char pieceChar(int piece) {
+        return PIECE_CHARS.charAt(piece);
+    }
+
+    public int pieceAt(int sq) {
+        return mailbox[sq];
+    }
+
+    public long pieces(int color, int type) {
+        return pieces[color * 6 + type];
+    }
+
+    public long occupancy(int color) {
+        return colors[color];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public int castlingRights() {
+        return castlingRights;
+    }
+
+    public int epSquare() {
+        return epSquare;
+    }
+
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    // Zobrist key, maintained incrementally by makeMove and unmakeMove
+    public long key() {
+        return key;
+    }
+
+    // Full recomputation of the Zobrist key, for initialisation and consistency checks
+    public long computeKey() {
+        long k = 0L;
+        for (int sq = 0; sq < 64; sq++) {
+            if (mailbox[sq] != NO_PIECE) {
+                k ^= Zobrist.PIECE_SQUARE[mailbox[sq]][sq];
+            }
+        }
+        k ^= Zobrist.CASTLING[castlingRights] ^ epKey();
+        if (sideToMove == BLACK) {
+            k ^= Zobrist.BLACK_TO_MOVE;
+        }
+        return k;
+    }
+
+    // The en passant file only counts when a pawn of the side to move could actually capture
+    private long epKey() {
+        if (epSquare == NO_SQUARE
+            || (Bitboards.PAWN_ATTACKS[sideToMove ^ 1][epSquare] & pieces[sideToMove * 6 + PAWN]) == 0) {
+            return 0L;
+        }
+        return Zobrist.EP_FILE[epSquare & 7];
+    }
+
+    // Piece counts packed in 4-bit fields, one per piece code; equal for equal material
+    public long materialKey() {
+        return material;
+    }
+
+    // Sum of Evaluation's packed piece-square scores over all pieces, white positive
+    int psqtScore() {
+        return psqt;
+    }
+
+    int phase() {
+        return phase;
+    }
+
+    public int count(int piece) {
+        return (int) (material >>> (4 * piece)) & 15;
+    }
+
+    // Earlier occurrences of this position in the game. Only positions with the same side to move
+    // since the last capture or pawn move can repeat it, so at most halfmoveClock / 2 keys of the
+    // undo stack are compared.
+    public int repetitions() {
+        int count = 0;
+        int oldest = Math.max(-history.length, ply - halfmoveClock);
+        for (int i = ply - 4; i >= oldest; i -= 2) {
+            if (keyAt(i) == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Keys of the positions since the last capture or pawn move, oldest first, without this one
+    long[] recentKeys() {
+        int count = Math.min(halfmoveClock, ply + history.length);
+        if (count == 0) {
+            return NO_HISTORY;
+        }
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = keyAt(ply - count + i);
+        }
+        return keys;
+    }
+
+    // Continues the game after the given recentKeys() of another position (see PositionSnapshot)
+    void setHistory(long[] keys) {
+        history = keys;
+    }
+
+    // Key of the position at the given ply, negative plies reaching back into history
+    private long keyAt(int index) {
+        return index >= 0 ? undoLog[index * UNDO_STRIDE + UNDO_KEY] : history[history.length + index];
+    }
+
+    // Neither side can mate with any sequence of moves: king against king plus at most one minor
+    // piece, or only bishops, all on squares of one color
+    public boolean isInsufficientMaterial() {
+        if ((material & MATING_MATERIAL) != 0) {
+            return false;
+        }
+        int knights = count(makePiece(WHITE, KNIGHT)) + count(makePiece(BLACK, KNIGHT));
+        long bishops = pieces[makePiece(WHITE, BISHOP)] | pieces[makePiece(BLACK, BISHOP)];
+        if (knights == 0) {
+            return (bishops & Bitboards.LIGHT_SQUARES) == 0 || (bishops & ~Bitboards.LIGHT_SQUARES) == 0;
+        }
+        return knights == 1 && bishops == 0;
+    }
+
+    public int ply() {
+        return ply;
+    }
+
+    // Move made at the given ply of the undo history, 0 being the first
+    public int moveAt(int index) {
+        return (int) undoLog[index * UNDO_STRIDE] & 0xFFFF;
+    }
+
+    public int lastMove() {
+        return ply > 0 ? moveAt(ply - 1) : Move.NONE;
+    }
+
+    public int kingSquare(int color) {
+        return kingSquares[color];
+    }
+
+    void putPiece(int sq, int piece) {
+        long bit = 1L << sq;
+        pieces[piece] |= bit;
+        colors[colorOf(piece)] |= bit;
+        occupied |= bit;
+        mailbox[sq] = piece;
+        key ^= Zobrist.PIECE_SQUARE[piece][sq];
+        material += 1L << (4 * piece);
+        psqt += Evaluation.PSQT[piece << 6 | sq];
+        phase += Evaluation.PHASE[piece];
+        if (typeOf(piece) == KING) {
+            kingSquares[colorOf(piece)] = sq;
+        }
+    }
+
+    void removePiece(int sq) {
+        int piece = mailbox[sq];
+        long bit = 1L << sq;
+        pieces[piece] &= ~bit;
+        colors[colorOf(piece)] &= ~bit;
+        occupied &= ~bit;
+        mailbox[sq] = NO_PIECE;
+        key ^= Zobrist.PIECE_SQUARE[piece][sq];
+        material -= 1L << (4 * piece);
+        psqt -= Evaluation.PSQT[piece << 6 | sq];
+        phase -= Evaluation.PHASE[piece];
+    }
+
+    void movePiece(int from, int to) {
+        int piece = mailbox[from];
+        long fromTo = (1L << from) | (1L << to);
+        pieces[piece] ^= fromTo;
+        colors[colorOf(piece)] ^= fromTo;
+        occupied ^= fromTo;
+        mailbox[from] = NO_PIECE;
+        mailbox[to] = piece;
+        key ^= Zobrist.PIECE_SQUARE[piece][from] ^ Zobrist.PIECE_SQUARE[piece][to];
+        psqt += Evaluation.PSQT[piece << 6 | to] - Evaluation.PSQT[piece << 6 | from];
+        if (typeOf(piece) == KING) {
+            kingSquares[colorOf(piece)] = to;
+        }
+    }
+
+    public boolean isSquareAttacked(int sq, int byColor) {
+        int base = byColor * 6;
+        if ((Bitboards.PAWN_ATTACKS[byColor ^ 1][sq] & pieces[base + PAWN]) != 0) return true;
+        if ((Bitboards.KNIGHT_ATTACKS[sq] & pieces[base + KNIGHT]) != 0) return true;
+        if ((Bitboards.KING_ATTACKS[sq] & pieces[base + KING]) != 0) return true;
+        long queens = pieces[base + QUEEN];
+        if ((Bitboards.bishopAttacks(sq, occupied) & (pieces[base + BISHOP] | queens)) != 0) return true;
+        return (Bitboards.rookAttacks(sq, occupied) & (pieces[base + ROOK] | queens)) != 0;
+    }
+
+    // Pieces of the given color attacking a square, for an arbitrary occupancy
+    public long attackersTo(int sq, int byColor, long occupancy) {
+        int base = byColor * 6;
+        long queens = pieces[base + QUEEN];
+        return (Bitboards.PAWN_ATTACKS[byColor ^ 1][sq] & pieces[base + PAWN])
+            | (Bitboards.KNIGHT_ATTACKS[sq] & pieces[base + KNIGHT])
+            | (Bitboards.KING_ATTACKS[sq] & pieces[base + KING])
+            | (Bitboards.bishopAttacks(sq, occupancy) & (pieces[base + BISHOP] | queens))
+            | (Bitboards.rookAttacks(sq, occupancy) & (pieces[base + ROOK] | queens));
+    }
+
+    // O(1) when the opponent's attack map is already known, otherwise only the rays from the king are walked
+    public boolean isInCheck(int color) {
+        int them = color ^ 1;
+        if ((attackMapsValid & (1 << them)) != 0) {
+            return (attackMaps[them] & (1L << kingSquares[color])) != 0;
+        }
+        return isSquareAttacked(kingSquares[color], them);
+    }
+
+    // Every square attacked by the given side
+    public long attacks(int color) {
+        if ((attackMapsValid & (1 << color)) == 0) {
+            attackMaps[color] = computeAttacks(color, occupied);
+            attackMapsValid |= 1 << color;
+        }
+        return attackMaps[color];
+    }
+
+    long computeAttacks(int color, long occupancy) {
+        int base = color * 6;
+        long pawns = pieces[base + PAWN];
+        long attacks = color == WHITE
+            ? ((pawns & ~Bitboards.FILE_A) << 7) | ((pawns & ~Bitboards.FILE_H) << 9)
+            : ((pawns & ~Bitboards.FILE_A) >>> 9) | ((pawns & ~Bitboards.FILE_H) >>> 7);
+        long knights = pieces[base + KNIGHT];
+        while (knights != 0) {
+            attacks |= Bitboards.KNIGHT_ATTACKS[Long.numberOfTrailingZeros(knights)];
+            knights &= knights - 1;
+        }
+        long diagonal = pieces[base + BISHOP] | pieces[base + QUEEN];
+        while (diagonal != 0) {
+            attacks |= Bitboards.bishopAttacks(Long.numberOfTrailingZeros(diagonal), occupancy);
+            diagonal &= diagonal - 1;
+        }
+        long straight = pieces[base + ROOK] | pieces[base + QUEEN];
+        while (straight != 0) {
+            attacks |= Bitboards.rookAttacks(Long.numberOfTrailingZeros(straight), occupancy);
+            straight &= straight - 1;
+        }
+        if (kingSquares[color] != NO_SQUARE) {
+            attacks |= Bitboards.KING_ATTACKS[kingSquares[color]];
+        }
+        return attacks;
+    }
+
+    // Builds the packed move for a from/to pair, inferring castling, en passant and double pushes
+    public int moveFor(int from, int to, int promotionType) {
+        int type = typeOf(mailbox[from]);
+        boolean capture = mailbox[to] != NO_PIECE;
+        int flags = capture ? Move.CAPTURE : Move.QUIET;
+        if (type == PAWN) {
+            if (to == epSquare) {
+                flags = Move.EP_CAPTURE;
+            } else if (Math.abs(to - from) == 16) {
+                flags = Move.DOUBLE_PUSH;
+            } else if (to < 8 || to >= 56) {
+                flags = Move.promotionFlags(promotionType, capture);
+            }
+        } else if (type == KING && Math.abs(to - from) == 2) {
+            flags = to > from ? Move.KING_CASTLE : Move.QUEEN_CASTLE;
+        }
+        return Move.encode(from, to, flags);
+    }
+
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int us = sideToMove;
+        int piece = mailbox[from];
+
+        int capturedSq = flags == Move.EP_CAPTURE ? (us == WHITE ? to - 8 : to + 8) : to;
+        int captured = mailbox[capturedSq];
+
+        int entry = ply * UNDO_STRIDE;
+        if (entry == undoLog.length) {
+            undoLog = Arrays.copyOf(undoLog, undoLog.length * 2);
+        }
+        undoLog[entry] = (move & 0xFFFF)
+            | (long) (captured + 1) << UNDO_CAPTURED_SHIFT
+            | (long) castlingRights << UNDO_CASTLING_SHIFT
+            | (long) (epSquare + 1) << UNDO_EP_SHIFT
+            | (long) attackMapsValid << UNDO_VALID_SHIFT
+            | (long) halfmoveClock << UNDO_HALFMOVE_SHIFT;
+        undoLog[entry + UNDO_KEY] = key;
+        undoLog[entry + UNDO_ATTACKS] = attackMaps[WHITE];
+        undoLog[entry + UNDO_ATTACKS + 1] = attackMaps[BLACK];
+        attackMapsValid = 0;
+        ply++;
+
+        // Take out the old castling and en passant contributions before the pieces move
+        key ^= Zobrist.CASTLING[castlingRights] ^ epKey();
+
+        if (captured != NO_PIECE) {
+            removePiece(capturedSq);
+        }
+        movePiece(from, to);
+
+        if (Move.isPromotion(move)) {
+            removePiece(to);
+            putPiece(to, makePiece(us, Move.promotionType(move)));
+        } else if (flags == Move.KING_CASTLE) {
+            movePiece(to + 1, to - 1);
+        } else if (flags == Move.QUEEN_CASTLE) {
+            movePiece(to - 2, to + 1);
+        }
+
+        epSquare = flags == Move.DOUBLE_PUSH ? (from + to) >>> 1 : NO_SQUARE;
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        halfmoveClock = (typeOf(piece) == PAWN || captured != NO_PIECE) ? 0 : halfmoveClock + 1;
+        if (us == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove = us ^ 1;
+        key ^= Zobrist.CASTLING[castlingRights] ^ epKey() ^ Zobrist.BLACK_TO_MOVE;
+    }
+
+    public void unmakeMove() {
+        ply--;
+        int entry = ply * UNDO_STRIDE;
+        long state = undoLog[entry];
+        int move = (int) state & 0xFFFF;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int us = sideToMove ^ 1;
+
+        sideToMove = us;
+        if (us == BLACK) {
+            fullmoveNumber--;
+        }
+        castlingRights = (int) (state >>> UNDO_CASTLING_SHIFT) & 0xF;
+        epSquare = ((int) (state >>> UNDO_EP_SHIFT) & 0x7F) - 1;
+        halfmoveClock = (int) (state >>> UNDO_HALFMOVE_SHIFT);
+        attackMaps[WHITE] = undoLog[entry + UNDO_ATTACKS];
+        attackMaps[BLACK] = undoLog[entry + UNDO_ATTACKS + 1];
+        attackMapsValid = (int) (state >>> UNDO_VALID_SHIFT) & 3;
+
+        if (Move.isPromotion(move)) {
+            removePiece(to);
+            putPiece(to, makePiece(us, PAWN));
+        } else if (flags == Move.KING_CASTLE) {
+            movePiece(to - 1, to + 1);
+        } else if (flags == Move.QUEEN_CASTLE) {
+            movePiece(to + 1, to - 2);
+        }
+        movePiece(to, from);
+
+        int captured = ((int) (state >>> UNDO_CAPTURED_SHIFT) & 0xF) - 1;
+        if (captured != NO_PIECE) {
+            putPiece(flags == Move.EP_CAPTURE ? (us == WHITE ? to - 8 : to + 8) : to, captured);
+        }
+        key = undoLog[entry + UNDO_KEY];
+    }
+}
@@ -0,0 +1,117 @@
+package com.chess;
+
+import java.util.Arrays;
+
+// Immutable, compact copy of a complete game state: 4 bits per square (piece + 1, 0 for empty)
+// in four longs, plus one long for side to move, castling rights, en passant square and clocks.
+// Snapshots can be shared between threads and games freely; play() is copy-on-make. The keys of
+// the positions since the last capture or pawn move travel along, so that a Position rebuilt from
+// a snapshot still detects repetitions of the game before it.
+public final class PositionSnapshot {
+    // State layout: side 0, castling 1-4, ep square + 1 5-11, halfmove clock 12-27, fullmove 28-59
+    private static final int CASTLING_SHIFT = 1;
+    private static final int EP_SHIFT = 5;
+    private static final int HALFMOVE_SHIFT = 12;
+    private static final int FULLMOVE_SHIFT = 28;
+
+    private final long[] squares;
+    private final long state;
+    private final long key;
+    private final long[] history;
+
+    private PositionSnapshot(long[] squares, long state, long key, long[] history) {
+        this.squares = squares;
+        this.state = state;
+        this.key = key;
+        this.history = history;
+    }
+
+    public static PositionSnapshot of(Position pos) {
+        long[] squares = new long[4];
+        for (int sq = 0; sq < 64; sq++) {
+            squares[sq >>> 4] |= (long) (pos.pieceAt(sq) + 1) << ((sq & 15) << 2);
+        }
+        long state = pos.sideToMove()
+            | (long) pos.castlingRights() << CASTLING_SHIFT
+            | (long) (pos.epSquare() + 1) << EP_SHIFT
+            | (long) (pos.halfmoveClock() & 0xFFFF) << HALFMOVE_SHIFT
+            | (long) pos.fullmoveNumber() << FULLMOVE_SHIFT;
+        return new PositionSnapshot(squares, state, pos.key(), pos.recentKeys());
+    }
+
+    public static PositionSnapshot startPosition() {
+        return of(Position.startPosition());
+    }
+
+    public static PositionSnapshot fromFen(String fen) {
+        return of(Position.fromFen(fen));
+    }
+
+    // A new mutable Position with this state and an empty undo history; its repetitions() still
+    // counts the earlier positions of the game
+    public Position toPosition() {
+        Position pos = new Position();
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = pieceAt(sq);
+            if (piece != Position.NO_PIECE) {
+                pos.putPiece(sq, piece);
+            }
+        }
+        pos.setState(sideToMove(), castlingRights(), epSquare(), halfmoveClock(), fullmoveNumber());
+        pos.setHistory(history);
+        return pos;
+    }
+
+    // The snapshot after a legal move in packed form (see Move)
+    public PositionSnapshot play(int move) {
+        Position pos = toPosition();
+        pos.makeMove(move);
+        return of(pos);
+    }
+
+    public int pieceAt(int sq) {
+        return (int) ((squares[sq >>> 4] >>> ((sq & 15) << 2)) & 0xF) - 1;
+    }
+
+    public int sideToMove() {
+        return (int) (state & 1);
+    }
+
+    public int castlingRights() {
+        return (int) ((state >>> CASTLING_SHIFT) & 0xF);
+    }
+
+    public int epSquare() {
+        return (int) ((state >>> EP_SHIFT) & 0x7F) - 1;
+    }
+
+    public int halfmoveClock() {
+        return (int) ((state >>> HALFMOVE_SHIFT) & 0xFFFF);
+    }
+
+    public int fullmoveNumber() {
+        return (int) (state >>> FULLMOVE_SHIFT);
+    }
+
+    public long key() {
+        return key;
+    }
+
+    // Snapshots of the same position are equal however the game reached it
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof PositionSnapshot)) {
+            return false;
+        }
+        PositionSnapshot that = (PositionSnapshot) other;
+        return key == that.key && state == that.state && Arrays.equals(squares, that.squares);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (key ^ (key >>> 32));
+    }
+}
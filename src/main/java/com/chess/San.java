@@ -0,0 +1,216 @@
+package com.chess;
+
+// Standard Algebraic Notation, resolved against the legal moves of a position. Callers pass the
+// position's legal move list so one generated list serves every move of that position.
+public final class San {
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    private San() {
+    }
+
+    // Parses SAN such as "Nbd2", "exd6", "e8=Q+", "Pe4", "O-O-O" or "0-0". Check, mate and annotation
+    // suffixes are ignored. Throws IllegalArgumentException if no or several legal moves match.
+    public static int parse(Position pos, String san, MoveList legal) {
+        return parse(pos, san, 0, san.length(), legal);
+    }
+
+    // Parses the SAN in san[start, end), e.g. a token inside a reused buffer, without allocating
+    public static int parse(Position pos, CharSequence san, int start, int end, MoveList legal) {
+        while (end > start && isSuffix(san.charAt(end - 1))) {
+            end--;
+        }
+        if (end == start) {
+            throw new IllegalArgumentException("Empty SAN move");
+        }
+
+        char first = san.charAt(start);
+        if (first == 'O' || first == '0') {
+            int flags = isQueenCastle(san, start, end) ? Move.QUEEN_CASTLE : Move.KING_CASTLE;
+            for (int i = 0; i < legal.size(); i++) {
+                if (Move.flags(legal.get(i)) == flags) {
+                    return legal.get(i);
+                }
+            }
+            throw new IllegalArgumentException("Illegal castling: " + san.subSequence(start, end));
+        }
+
+        // Pawn moves have no letter, though some exporters write one ("Pe4")
+        int type = pieceType(first);
+        int index = start;
+        if (type >= Position.PAWN) {
+            index++;
+        } else {
+            type = Position.PAWN;
+        }
+
+        // Promotion suffix, with or without '='
+        int promotion = -1;
+        if (type == Position.PAWN && pieceType(san.charAt(end - 1)) > Position.PAWN) {
+            promotion = pieceType(san.charAt(end - 1));
+            end--;
+            if (end > start && san.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+
+        if (end - index < 2) {
+            throw new IllegalArgumentException("Invalid SAN move: " + san.subSequence(start, end));
+        }
+        int to = square(san.charAt(end - 2), san.charAt(end - 1));
+        if (to < 0) {
+            throw new IllegalArgumentException("Invalid SAN move: " + san.subSequence(start, end));
+        }
+
+        // Whatever sits between the piece letter and the target square: file, rank and/or 'x'
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = index; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != '-' && c != ':') {
+                throw new IllegalArgumentException("Invalid SAN move: " + san.subSequence(start, end));
+            }
+        }
+
+        int found = Move.NONE;
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            int from = Move.from(move);
+            if (Move.to(move) != to
+                || Position.typeOf(pos.pieceAt(from)) != type
+                || Move.isCastle(move)
+                || (fromFile >= 0 && (from & 7) != fromFile)
+                || (fromRank >= 0 && (from >>> 3) != fromRank)) {
+                continue;
+            }
+            if (Move.isPromotion(move) ? Move.promotionType(move) != promotion : promotion >= 0) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                throw new IllegalArgumentException("Ambiguous SAN move: " + san.subSequence(start, end));
+            }
+            found = move;
+        }
+        if (found == Move.NONE) {
+            throw new IllegalArgumentException("Illegal SAN move: " + san.subSequence(start, end));
+        }
+        return found;
+    }
+
+    public static int parse(Position pos, String san) {
+        MoveList legal = new MoveList();
+        MoveGenerator.generateLegal(pos, legal);
+        return parse(pos, san, legal);
+    }
+
+    // Appends the SAN of a legal move, with disambiguation, promotion piece and check or mate
+    // suffix. The position is left as it was. Nothing is allocated: disambiguation scans the
+    // caller's legal list, and mate is told from check by looking for any reply without listing them.
+    public static void append(Position pos, int move, MoveList legal, StringBuilder out) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        if (flags == Move.KING_CASTLE) {
+            out.append("O-O");
+        } else if (flags == Move.QUEEN_CASTLE) {
+            out.append("O-O-O");
+        } else {
+            int type = Position.typeOf(pos.pieceAt(from));
+            if (type == Position.PAWN) {
+                if (Move.isCapture(move)) {
+                    out.append((char) ('a' + (from & 7)));
+                }
+            } else {
+                out.append(PIECE_LETTERS.charAt(type));
+                appendDisambiguation(pos, move, type, legal, out);
+            }
+            if (Move.isCapture(move)) {
+                out.append('x');
+            }
+            Move.appendSquare(out, to);
+            if (Move.isPromotion(move)) {
+                out.append('=').append(PIECE_LETTERS.charAt(Move.promotionType(move)));
+            }
+        }
+
+        pos.makeMove(move);
+        if (pos.isInCheck(pos.sideToMove())) {
+            out.append(MoveGenerator.hasLegalMove(pos) ? '+' : '#');
+        }
+        pos.unmakeMove();
+    }
+
+    public static String toSan(Position pos, int move) {
+        MoveList legal = new MoveList();
+        MoveGenerator.generateLegal(pos, legal);
+        StringBuilder sb = new StringBuilder(8);
+        append(pos, move, legal, sb);
+        return sb.toString();
+    }
+
+    // File if it tells the candidates apart, else rank, else both
+    private static void appendDisambiguation(Position pos, int move, int type, MoveList legal, StringBuilder out) {
+        int from = Move.from(move);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < legal.size(); i++) {
+            int other = legal.get(i);
+            int otherFrom = Move.from(other);
+            if (otherFrom == from || Move.to(other) != Move.to(move)
+                || Position.typeOf(pos.pieceAt(otherFrom)) != type) {
+                continue;
+            }
+            ambiguous = true;
+            sameFile |= (otherFrom & 7) == (from & 7);
+            sameRank |= (otherFrom >>> 3) == (from >>> 3);
+        }
+        if (!ambiguous) {
+            return;
+        }
+        if (!sameFile) {
+            out.append((char) ('a' + (from & 7)));
+        } else if (!sameRank) {
+            out.append((char) ('1' + (from >>> 3)));
+        } else {
+            Move.appendSquare(out, from);
+        }
+    }
+
+    private static boolean isSuffix(char c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
+
+    // Piece type of an upper-case SAN letter, or -1
+    private static int pieceType(char c) {
+        switch (c) {
+            case 'N': return Position.KNIGHT;
+            case 'B': return Position.BISHOP;
+            case 'R': return Position.ROOK;
+            case 'Q': return Position.QUEEN;
+            case 'K': return Position.KING;
+            case 'P': return Position.PAWN;
+            default: return -1;
+        }
+    }
+
+    private static boolean isQueenCastle(CharSequence san, int start, int end) {
+        int parts = 1;
+        for (int i = start; i < end; i++) {
+            if (san.charAt(i) == '-') {
+                parts++;
+            }
+        }
+        return parts >= 3;
+    }
+
+    private static int square(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            return -1;
+        }
+        return (rank - '1') * 8 + (file - 'a');
+    }
+}
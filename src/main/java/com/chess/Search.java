@@ -0,0 +1,352 @@
+package com.chess;
+
+// Headless iterative-deepening alpha-beta search with quiescence, a transposition table and
+// move ordering by TT move, MVV-LVA captures, killer moves and the history heuristic.
+// A Search owns its Position; callers hand it a copy of the game position.
+public class Search {
+    public static final int INFINITY = 32000;
+    public static final int MATE = 30000;
+    public static final int MAX_PLY = 128;
+    private static final int MATE_BOUND = MATE - MAX_PLY;
+
+    private static final int TT_MOVE_SCORE = 2_000_000;
+    private static final int CAPTURE_SCORE = 1_000_000;
+    private static final int KILLER_SCORE = 900_000;
+    private static final int HISTORY_LIMIT = 800_000;
+
+    private final Position position;
+    private final TranspositionTable table;
+    private final MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+    private final int[][] moveScores = new int[MAX_PLY + 1][MoveList.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][] history = new int[12][64];
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    private long nodes;
+    private long deadline;
+    private int completedDepth;
+    private volatile boolean stopped;
+    private Tablebases tablebases;
+
+    public Search(Position position, TranspositionTable table) {
+        this.position = position;
+        this.table = table;
+        for (int i = 0; i <= MAX_PLY; i++) {
+            moveLists[i] = new MoveList();
+        }
+    }
+
+    // Searches until maxDepth is completed or timeLimitMillis runs out (0 means no time limit).
+    // Unless stop() is called, the first iteration always completes, so a legal move is returned
+    // whenever one exists. A Search runs once: the stop flag is never cleared, so a stop() that
+    // arrives before the search starts is not lost, and callers make a new Search per search.
+    public SearchResult search(int maxDepth, long timeLimitMillis) {
+        table.newSearch();
+        return iterate(1, maxDepth, timeLimitMillis);
+    }
+
+    // Lazy SMP helper: searches from startDepth without a time limit until stop() is called or
+    // maxDepth is completed. It leaves the table generation to the main search.
+    SearchResult searchAsHelper(int startDepth, int maxDepth) {
+        return iterate(startDepth, maxDepth, 0);
+    }
+
+    private SearchResult iterate(int startDepth, int maxDepth, long timeLimitMillis) {
+        long start = System.nanoTime();
+        deadline = timeLimitMillis > 0 ? start + timeLimitMillis * 1_000_000L : Long.MAX_VALUE;
+        nodes = 0;
+        completedDepth = 0;
+        for (int[] killer : killers) {
+            killer[0] = Move.NONE;
+            killer[1] = Move.NONE;
+        }
+        for (int[] row : history) {
+            for (int sq = 0; sq < 64; sq++) {
+                row[sq] /= 2;
+            }
+        }
+
+        SearchResult result = null;
+        for (int depth = startDepth; depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+            int score = alphaBeta(depth, -INFINITY, INFINITY, 0);
+            if (stopped) {
+                break;
+            }
+            completedDepth = depth;
+            int[] pv = java.util.Arrays.copyOf(pvTable[0], pvLength[0]);
+            result = new SearchResult(pv, score, depth, nodes, (System.nanoTime() - start) / 1_000_000);
+            if (pv.length == 0 || Math.abs(score) >= MATE_BOUND) {
+                break; // No legal moves, or a forced mate has been found
+            }
+        }
+        return result;
+    }
+
+    // Positions with few enough pieces are scored from these tables instead of being searched
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    // Asks a running search to return as soon as possible
+    public void stop() {
+        stopped = true;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    private int alphaBeta(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if (ply > 0 && (position.halfmoveClock() >= 100 || position.repetitions() > 0
+                || position.isInsufficientMaterial())) {
+            return 0; // Drawn; one repetition is enough, as the side that repeated can do it again
+        }
+        if (ply > 0 && tablebases != null && Long.bitCount(position.occupied()) <= Tablebases.MAX_PIECES) {
+            int code = tablebases.probeCode(position);
+            if (code >= Tablebase.DRAW_CODE) {
+                return tablebaseScore(code, ply);
+            }
+        }
+        boolean inCheck = position.isInCheck(position.sideToMove());
+        if (inCheck) {
+            depth++; // Check extension
+        }
+        if (depth <= 0) {
+            return quiescence(alpha, beta, ply);
+        }
+        if ((++nodes & 2047) == 0) {
+            checkTime();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(position);
+        }
+
+        int originalAlpha = alpha;
+        long key = position.key();
+        long entry = table.probe(key);
+        int ttMove = Move.NONE;
+        if (entry != 0) {
+            ttMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                    || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                    || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        MoveGenerator.generateLegal(position, moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(moves, ply, ttMove);
+
+        int bestMove = Move.NONE;
+        int bestScore = -INFINITY;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = pickNext(moves, ply, i);
+            position.makeMove(move);
+            int score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1);
+            position.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (score >= beta) {
+                        if (!Move.isCapture(move)) {
+                            updateQuietHeuristics(move, depth, ply);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.BOUND_LOWER
+            : bestScore > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(key, bestMove, scoreToTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    // Resolves captures and promotions so the static evaluation is only taken in quiet positions
+    private int quiescence(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if ((++nodes & 2047) == 0) {
+            checkTime();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(position);
+        }
+
+        boolean inCheck = position.isInCheck(position.sideToMove());
+        int bestScore = -INFINITY;
+        if (!inCheck) {
+            bestScore = Evaluation.evaluate(position);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            if (bestScore > alpha) {
+                alpha = bestScore;
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        MoveGenerator.generateLegal(position, moves);
+        if (inCheck && moves.isEmpty()) {
+            return -MATE + ply;
+        }
+        if (!inCheck) {
+            // Keep only captures and promotions
+            int kept = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if (Move.isCapture(move) || Move.isPromotion(move)) {
+                    moves.set(kept++, move);
+                }
+            }
+            moves.truncate(kept);
+        }
+        scoreMoves(moves, ply, Move.NONE);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = pickNext(moves, ply, i);
+            position.makeMove(move);
+            int score = -quiescence(-beta, -alpha, ply + 1);
+            position.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    private void scoreMoves(MoveList moves, int ply, int ttMove) {
+        int[] scores = moveScores[ply];
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int piece = position.pieceAt(Move.from(move));
+            int score;
+            if (move == ttMove) {
+                score = TT_MOVE_SCORE;
+            } else if (Move.isCapture(move) || Move.isPromotion(move)) {
+                // MVV-LVA: most valuable victim first, least valuable attacker breaks ties
+                int victim = Move.flags(move) == Move.EP_CAPTURE ? Position.PAWN
+                    : Move.isCapture(move) ? Position.typeOf(position.pieceAt(Move.to(move))) : Position.PAWN;
+                score = CAPTURE_SCORE + Evaluation.PIECE_VALUES[victim] * 10 - Position.typeOf(piece);
+                if (Move.isPromotion(move)) {
+                    score += Evaluation.PIECE_VALUES[Move.promotionType(move)];
+                }
+            } else if (move == killers[ply][0]) {
+                score = KILLER_SCORE;
+            } else if (move == killers[ply][1]) {
+                score = KILLER_SCORE - 1;
+            } else {
+                score = history[piece][Move.to(move)];
+            }
+            scores[i] = score;
+        }
+    }
+
+    // Selection sort step: swaps the best remaining move into place
+    private int pickNext(MoveList moves, int ply, int index) {
+        int[] scores = moveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves.get(best);
+        if (best != index) {
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return move;
+    }
+
+    private void updateQuietHeuristics(int move, int depth, int ply) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int piece = position.pieceAt(Move.from(move));
+        int[] row = history[piece];
+        row[Move.to(move)] = Math.min(HISTORY_LIMIT, row[Move.to(move)] + depth * depth);
+    }
+
+    private void updatePrincipalVariation(int ply, int move) {
+        pvTable[ply][ply] = move;
+        for (int i = ply + 1; i < pvLength[ply + 1]; i++) {
+            pvTable[ply][i] = pvTable[ply + 1][i];
+        }
+        pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+    }
+
+    private void checkTime() {
+        if (completedDepth > 0 && System.nanoTime() > deadline) {
+            stopped = true;
+        }
+    }
+
+    // Mate scores are stored relative to the node so they stay valid at any distance from the root
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    // Exact score of a tablebase result, as a mate score counted from the root
+    private static int tablebaseScore(int code, int ply) {
+        if (code == Tablebase.DRAW_CODE) {
+            return 0;
+        }
+        int dtm = code - Tablebase.DTM_BASE;
+        return dtm % 2 == 0 ? -MATE + ply + dtm : MATE - ply - dtm;
+    }
+}
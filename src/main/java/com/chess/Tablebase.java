@@ -0,0 +1,289 @@
+package com.chess;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// One endgame table, e.g. "KQvKR": a result for every placement of its pieces with either side to
+// move. The file holds a header, then a 2-bit WDL section (draw, win, loss, unused) and a
+// bit-packed DTM section (plies to mate, as few bits per entry as the longest mate needs).
+// Tables are memory-mapped, so probing never copies them into the heap.
+//
+// Index: the white king is folded by symmetry onto 10 squares (a1-d1-d4) in pawnless tables, or
+// onto files a-d with pawns; each other piece takes 6 bits, and the side to move the lowest bit.
+public class Tablebase implements Closeable {
+    // Result codes shared by the generator and the probes. A decided result stores its distance
+    // to mate; even distances are losses and odd ones wins for the side to move.
+    static final int UNRESOLVED = 0;
+    static final int INVALID = 1;
+    static final int DRAW_CODE = 2;
+    static final int DTM_BASE = 3;
+    static final int MAX_DTM = 255 - DTM_BASE;
+
+    private static final int MAGIC = 0x43485442; // "CHTB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int WDL_DRAW = 0;
+    private static final int WDL_WIN = 1;
+    private static final int WDL_LOSS = 2;
+    private static final int WDL_INVALID = 3;
+
+    private static final int[] TRIANGLE = {0, 1, 2, 3, 9, 10, 11, 18, 19, 27}; // a1 b1 c1 d1 b2 c2 d2 c3 d3 d4
+    private static final int[] KING_INDEX_PAWNLESS = new int[64];
+    private static final int[] KING_INDEX_PAWNS = new int[64];
+    private static final int[] KING_SQUARES_PAWNS = new int[32];
+
+    static {
+        java.util.Arrays.fill(KING_INDEX_PAWNLESS, -1);
+        for (int i = 0; i < TRIANGLE.length; i++) {
+            KING_INDEX_PAWNLESS[TRIANGLE[i]] = i;
+        }
+        java.util.Arrays.fill(KING_INDEX_PAWNS, -1);
+        for (int i = 0; i < 32; i++) {
+            KING_SQUARES_PAWNS[i] = (i / 4) * 8 + (i & 3);
+            KING_INDEX_PAWNS[KING_SQUARES_PAWNS[i]] = i;
+        }
+    }
+
+    private final String signature;
+    private final int[] pieces;
+    private final boolean pawns;
+    private final int kingSquares;
+    private final int size;
+    private final FileChannel channel;
+    private final ByteBuffer data;
+    private final int dtmBits;
+    private final int dtmOffset;
+
+    // A table that is being generated and has no file yet
+    Tablebase(String signature) {
+        this(signature, null, null, 0);
+    }
+
+    private Tablebase(String signature, FileChannel channel, ByteBuffer data, int dtmBits) {
+        this.signature = signature;
+        this.pieces = piecesOf(signature);
+        boolean hasPawns = false;
+        for (int piece : pieces) {
+            hasPawns |= Position.typeOf(piece) == Position.PAWN;
+        }
+        this.pawns = hasPawns;
+        this.kingSquares = pawns ? 32 : TRIANGLE.length;
+        long entries = 2L * kingSquares << (6 * (pieces.length - 1));
+        if (entries > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many pieces for a table: " + signature);
+        }
+        this.size = (int) entries;
+        this.channel = channel;
+        this.data = data;
+        this.dtmBits = dtmBits;
+        this.dtmOffset = HEADER_SIZE + (size + 3) / 4;
+    }
+
+    public static Tablebase open(Path file, String signature) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Not a tablebase file: " + file);
+        }
+        Tablebase table = new Tablebase(signature, channel, data, data.getInt(16));
+        if (data.getLong(8) != table.size) {
+            channel.close();
+            throw new IOException("Tablebase " + file + " does not match " + signature);
+        }
+        return table;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Piece codes in index order: white king, black king, then the other pieces
+    int[] pieces() {
+        return pieces;
+    }
+
+    boolean hasPawns() {
+        return pawns;
+    }
+
+    // Result code of an entry (see UNRESOLVED .. DTM_BASE)
+    int code(int index) {
+        int wdl = (data.get(HEADER_SIZE + (index >>> 2)) >>> ((index & 3) * 2)) & 3;
+        if (wdl == WDL_INVALID) {
+            return INVALID;
+        }
+        if (wdl == WDL_DRAW) {
+            return DRAW_CODE;
+        }
+        long bit = (long) index * dtmBits;
+        int offset = dtmOffset + (int) (bit >>> 3);
+        int word = (data.get(offset) & 0xFF) | (data.get(offset + 1) & 0xFF) << 8;
+        return DTM_BASE + ((word >>> (bit & 7)) & ((1 << dtmBits) - 1));
+    }
+
+    // Index of a position holding exactly this table's material. With flip the colors are
+    // swapped (and the board mirrored) first, for positions where black has the white pieces.
+    int index(Position pos, boolean flip, int[] squares) {
+        int slot = 0;
+        while (slot < pieces.length) {
+            int piece = pieces[slot];
+            int actual = flip ? Position.makePiece(Position.colorOf(piece) ^ 1, Position.typeOf(piece)) : piece;
+            long bits = pos.pieces(Position.colorOf(actual), Position.typeOf(actual));
+            while (bits != 0) {
+                int sq = Long.numberOfTrailingZeros(bits);
+                squares[slot++] = flip ? sq ^ 56 : sq;
+                bits &= bits - 1;
+            }
+        }
+        return index(squares, flip ? pos.sideToMove() ^ 1 : pos.sideToMove());
+    }
+
+    // Index of a placement; squares are in the order of pieces() and are modified
+    int index(int[] squares, int side) {
+        int king = squares[0];
+        if ((king & 7) > 3) {
+            mirror(squares, 7);
+            king ^= 7;
+        }
+        if (!pawns) {
+            if (king >>> 3 > 3) {
+                mirror(squares, 56);
+                king ^= 56;
+            }
+            if ((king >>> 3) > (king & 7)) {
+                transpose(squares);
+            } else if ((king >>> 3) == (king & 7)) {
+                // On the diagonal both orientations are valid; take the smaller index
+                int plain = rawIndex(squares, side);
+                transpose(squares);
+                return Math.min(plain, rawIndex(squares, side));
+            }
+        }
+        return rawIndex(squares, side);
+    }
+
+    // Inverse of index: fills squares (in the order of pieces()) and returns the side to move
+    int decode(int index, int[] squares) {
+        int side = index & 1;
+        int rest = index >>> 1;
+        for (int i = pieces.length - 1; i >= 1; i--) {
+            squares[i] = rest & 63;
+            rest >>>= 6;
+        }
+        squares[0] = pawns ? KING_SQUARES_PAWNS[rest] : TRIANGLE[rest];
+        return side;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private int rawIndex(int[] squares, int side) {
+        sortEqualPieces(squares);
+        int index = pawns ? KING_INDEX_PAWNS[squares[0]] : KING_INDEX_PAWNLESS[squares[0]];
+        for (int i = 1; i < pieces.length; i++) {
+            index = (index << 6) | squares[i];
+        }
+        return (index << 1) | side;
+    }
+
+    // Identical pieces are interchangeable, so their squares are kept in ascending order
+    private void sortEqualPieces(int[] squares) {
+        for (int i = 2; i < pieces.length; i++) {
+            for (int j = i; j > 2 && pieces[j] == pieces[j - 1] && squares[j] < squares[j - 1]; j--) {
+                int sq = squares[j];
+                squares[j] = squares[j - 1];
+                squares[j - 1] = sq;
+            }
+        }
+    }
+
+    private void mirror(int[] squares, int mask) {
+        for (int i = 0; i < pieces.length; i++) {
+            squares[i] ^= mask;
+        }
+    }
+
+    private void transpose(int[] squares) {
+        for (int i = 0; i < pieces.length; i++) {
+            squares[i] = ((squares[i] & 7) << 3) | (squares[i] >>> 3);
+        }
+    }
+
+    // Writes generated result codes (one byte per entry) in the file format above
+    static void write(Path file, int size, byte[] codes) throws IOException {
+        int maxDtm = 0;
+        for (int i = 0; i < size; i++) {
+            int code = codes[i] & 0xFF;
+            if (code >= DTM_BASE) {
+                maxDtm = Math.max(maxDtm, code - DTM_BASE);
+            }
+        }
+        int dtmBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxDtm));
+        byte[] wdl = new byte[(size + 3) / 4];
+        byte[] dtm = new byte[(int) (((long) size * dtmBits + 7) / 8) + 1]; // +1 so a probe can read two bytes
+        for (int i = 0; i < size; i++) {
+            int code = codes[i] & 0xFF;
+            int value = code >= DTM_BASE ? ((code - DTM_BASE) % 2 == 0 ? WDL_LOSS : WDL_WIN)
+                : code == INVALID ? WDL_INVALID : WDL_DRAW;
+            wdl[i >>> 2] |= value << ((i & 3) * 2);
+            if (code >= DTM_BASE) {
+                long bit = (long) i * dtmBits;
+                int offset = (int) (bit >>> 3);
+                int shifted = (code - DTM_BASE) << (bit & 7);
+                dtm[offset] |= shifted;
+                dtm[offset + 1] |= shifted >>> 8;
+            }
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(size);
+            out.writeInt(dtmBits);
+            out.write(new byte[HEADER_SIZE - 20]); // Reserved
+            out.write(wdl);
+            out.write(dtm);
+        }
+        Files.move(temp, file, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // "KQvKR" -> {white king, black king, white queen, black rook}
+    static int[] piecesOf(String signature) {
+        int split = signature.indexOf('v');
+        if (split < 1 || signature.charAt(0) != 'K' || split + 1 >= signature.length()
+                || signature.charAt(split + 1) != 'K') {
+            throw new IllegalArgumentException("Invalid tablebase signature: " + signature);
+        }
+        int[] pieces = new int[signature.length() - 1];
+        pieces[0] = Position.makePiece(Position.WHITE, Position.KING);
+        pieces[1] = Position.makePiece(Position.BLACK, Position.KING);
+        int n = 2;
+        for (int i = 1; i < signature.length(); i++) {
+            if (i == split || i == split + 1) {
+                continue;
+            }
+            int type = "PNBRQ".indexOf(signature.charAt(i));
+            if (type < 0) {
+                throw new IllegalArgumentException("Invalid tablebase signature: " + signature);
+            }
+            pieces[n++] = Position.makePiece(i < split ? Position.WHITE : Position.BLACK, type);
+        }
+        return pieces;
+    }
+}
@@ -0,0 +1,385 @@
+package com.chess;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Builds endgame tables by retrograde analysis. Pass 0 scores mates, stalemates and every move
+// that leaves the table (captures and promotions, looked up in smaller tables generated first).
+// Pass d then resolves exactly the positions at distance d from mate: only predecessors of the
+// positions resolved in pass d-1 (found by un-moving pieces) and positions whose best exit is due
+// now are examined. Every pass is split over index ranges on a fork/join pool.
+public class TablebaseGenerator {
+    private static final int CHUNK = 1 << 12;
+    private static final int EVERY_PASS = 0xFF;
+
+    private final Tablebases tablebases;
+    private final ForkJoinPool pool;
+
+    public TablebaseGenerator(Tablebases tablebases, ForkJoinPool pool) {
+        this.tablebases = tablebases;
+        this.pool = pool;
+    }
+
+    // Generates the table and, first, any smaller table it depends on that is not on disk yet
+    public Tablebase generate(String signature) throws IOException {
+        String canonical = Tablebases.canonical(signature);
+        Tablebase table = new Tablebase(canonical);
+        if (table.pieces().length > Tablebases.MAX_PIECES) {
+            throw new IllegalArgumentException("At most " + Tablebases.MAX_PIECES + " pieces: " + signature);
+        }
+        for (String sub : subtables(table.pieces())) {
+            if (!tablebases.getDirectory().resolve(sub + ".tb").toFile().isFile()) {
+                generate(sub);
+            }
+        }
+
+        long start = System.nanoTime();
+        Run run = new Run(table);
+        run.solve();
+        Path file = tablebases.getDirectory().resolve(canonical + ".tb");
+        Tablebase.write(file, table.size(), run.codes);
+        Tablebase written = Tablebase.open(file, canonical);
+        tablebases.register(Tablebases.materialKey(table.pieces()), written);
+        Diagnostics.log(Diagnostics.Level.INFO, String.format("%s: %d positions, %d passes, longest mate %d plies, %d ms",
+            canonical, table.size(), run.passes, run.longestMate, (System.nanoTime() - start) / 1_000_000));
+        return written;
+    }
+
+    // Tables reached by a capture or a promotion
+    private static Set<String> subtables(int[] pieces) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 2; i < pieces.length; i++) {
+            result.add(signature(pieces, i, -1));
+            if (Position.typeOf(pieces[i]) == Position.PAWN) {
+                for (int type = Position.KNIGHT; type <= Position.QUEEN; type++) {
+                    result.add(signature(pieces, i, type));
+                }
+            }
+        }
+        return result;
+    }
+
+    // Signature with piece i removed (type -1) or replaced by the given type
+    private static String signature(int[] pieces, int replaced, int type) {
+        StringBuilder white = new StringBuilder();
+        StringBuilder black = new StringBuilder();
+        for (int i = 0; i < pieces.length; i++) {
+            int pieceType = i == replaced ? type : Position.typeOf(pieces[i]);
+            if (pieceType >= 0) {
+                (Position.colorOf(pieces[i]) == Position.WHITE ? white : black).append("PNBRQK".charAt(pieceType));
+            }
+        }
+        return Tablebases.canonical(white + "v" + black);
+    }
+
+    // State of one table generation
+    private final class Run {
+        final Tablebase table;
+        final long material;
+        final byte[] codes;
+        // Pass at which a position must be looked at again because of a move leaving the table
+        final byte[] triggers;
+        byte[] candidates;
+        byte[] nextCandidates;
+        int passes;
+        int longestMate;
+
+        Run(Tablebase table) {
+            this.table = table;
+            this.material = Tablebases.materialKey(table.pieces());
+            this.codes = new byte[table.size()];
+            this.triggers = new byte[table.size()];
+            this.candidates = new byte[table.size()];
+            this.nextCandidates = new byte[table.size()];
+        }
+
+        void solve() {
+            pool.invoke(new Pass(this, 0, 0, table.size()));
+            int lastTrigger = 0;
+            for (byte trigger : triggers) {
+                if ((trigger & 0xFF) != EVERY_PASS) {
+                    lastTrigger = Math.max(lastTrigger, trigger & 0xFF);
+                }
+            }
+            for (int pass = 1; ; pass++) {
+                byte[] swap = candidates;
+                candidates = nextCandidates;
+                nextCandidates = swap;
+                java.util.Arrays.fill(nextCandidates, (byte) 0);
+                long resolved = pool.invoke(new Pass(this, pass, 0, table.size()));
+                passes = pass;
+                if (resolved > 0) {
+                    longestMate = pass;
+                } else if (pass >= lastTrigger) {
+                    break;
+                }
+                if (pass >= Tablebase.MAX_DTM) {
+                    throw new IllegalStateException("Mate too long to store in " + table.getSignature());
+                }
+            }
+            for (int i = 0; i < codes.length; i++) {
+                if (codes[i] == Tablebase.UNRESOLVED) {
+                    codes[i] = Tablebase.DRAW_CODE;
+                }
+            }
+        }
+    }
+
+    // One pass over an index range; returns the number of positions it resolved
+    private final class Pass extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final int pass;
+        private final int from;
+        private final int to;
+
+        Pass(Run run, int pass, int from, int to) {
+            this.run = run;
+            this.pass = pass;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > CHUNK) {
+                int mid = (from + to) >>> 1;
+                Pass left = new Pass(run, pass, from, mid);
+                left.fork();
+                long right = new Pass(run, pass, mid, to).compute();
+                return left.join() + right;
+            }
+            Worker worker = new Worker(run);
+            long resolved = 0;
+            for (int i = from; i < to; i++) {
+                if (pass == 0) {
+                    worker.initialize(i);
+                } else if (run.codes[i] == Tablebase.UNRESOLVED
+                        && (run.candidates[i] != 0 || (run.triggers[i] & 0xFF) == pass
+                            || (run.triggers[i] & 0xFF) == EVERY_PASS)
+                        && worker.resolve(i, pass)) {
+                    resolved++;
+                }
+            }
+            return resolved;
+        }
+    }
+
+    // Per-task scratch state, so a pass allocates once per index range and never shares it
+    private final class Worker {
+        private final Run run;
+        private final Tablebase table;
+        private final int[] pieces;
+        private final Position pos = new Position();
+        private final MoveList[] moves = {new MoveList(), new MoveList()};
+        private final int[] squares = new int[Tablebases.MAX_PIECES];
+        private final int[] scratch = new int[Tablebases.MAX_PIECES];
+
+        Worker(Run run) {
+            this.run = run;
+            this.table = run.table;
+            this.pieces = table.pieces();
+        }
+
+        // Pass 0: marks invalid and duplicate entries, mates and stalemates, and schedules the
+        // pass at which the moves leaving the table decide the position
+        void initialize(int index) {
+            if (!setUp(index)) {
+                run.codes[index] = Tablebase.INVALID;
+                return;
+            }
+            MoveList legal = moves[0];
+            legal.clear();
+            MoveGenerator.generateLegal(pos, legal);
+            if (legal.isEmpty()) {
+                boolean mated = pos.isInCheck(pos.sideToMove());
+                run.codes[index] = (byte) (mated ? Tablebase.DTM_BASE : Tablebase.DRAW_CODE);
+                if (mated) {
+                    markPredecessors(index);
+                }
+                return;
+            }
+            int minLoss = Integer.MAX_VALUE;
+            int maxWin = -1;
+            boolean exitDraw = false;
+            for (int i = 0; i < legal.size(); i++) {
+                int move = legal.get(i);
+                pos.makeMove(move);
+                if (pos.epSquare() != Position.NO_SQUARE && Tablebases.hasEpCapture(pos)) {
+                    run.triggers[index] = (byte) EVERY_PASS; // The reply's value depends on the ep capture
+                } else if (pos.materialKey() != run.material) {
+                    int code = tablebases.probeCode(pos);
+                    if (code < Tablebase.DRAW_CODE) {
+                        pos.unmakeMove();
+                        throw new IllegalStateException("Missing table for " + Tablebases.signature(pos.materialKey()));
+                    }
+                    if (code == Tablebase.DRAW_CODE) {
+                        exitDraw = true;
+                    } else if ((code - Tablebase.DTM_BASE) % 2 == 0) {
+                        minLoss = Math.min(minLoss, code - Tablebase.DTM_BASE);
+                    } else {
+                        maxWin = Math.max(maxWin, code - Tablebase.DTM_BASE);
+                    }
+                }
+                pos.unmakeMove();
+            }
+            if ((run.triggers[index] & 0xFF) == EVERY_PASS) {
+                return;
+            }
+            if (minLoss != Integer.MAX_VALUE) {
+                run.triggers[index] = (byte) (minLoss + 1);
+            } else if (maxWin >= 0 && !exitDraw) {
+                run.triggers[index] = (byte) (maxWin + 1);
+            }
+        }
+
+        // Pass d: the position is won in d plies if some move reaches a position lost in d-1, and
+        // lost in d if every move reaches a win in at most d-1
+        boolean resolve(int index, int pass) {
+            setUp(index);
+            int code = evaluate(0, pass);
+            if (code < Tablebase.DTM_BASE || code - Tablebase.DTM_BASE != pass) {
+                return false;
+            }
+            run.codes[index] = (byte) code;
+            markPredecessors(index);
+            return true;
+        }
+
+        // Result code of the position from results known before this pass (distance below pass),
+        // or UNRESOLVED
+        private int evaluate(int depth, int pass) {
+            MoveList legal = moves[depth];
+            legal.clear();
+            MoveGenerator.generateLegal(pos, legal);
+            if (legal.isEmpty()) {
+                return pos.isInCheck(pos.sideToMove()) ? Tablebase.DTM_BASE : Tablebase.DRAW_CODE;
+            }
+            int minLoss = Integer.MAX_VALUE;
+            int maxWin = -1;
+            boolean allWins = true;
+            for (int i = 0; i < legal.size(); i++) {
+                pos.makeMove(legal.get(i));
+                int code;
+                if (depth == 0 && pos.epSquare() != Position.NO_SQUARE && Tablebases.hasEpCapture(pos)) {
+                    code = evaluate(1, pass - 1);
+                } else if (pos.materialKey() != run.material) {
+                    code = tablebases.probeCode(pos);
+                } else {
+                    code = run.codes[table.index(pos, false, scratch)] & 0xFF;
+                }
+                pos.unmakeMove();
+                int dtm = code - Tablebase.DTM_BASE;
+                if (code < Tablebase.DTM_BASE || dtm >= pass) {
+                    allWins = false; // Draw, unresolved, or only decided in this pass
+                } else if (dtm % 2 == 0) {
+                    minLoss = Math.min(minLoss, dtm);
+                    allWins = false;
+                } else {
+                    maxWin = Math.max(maxWin, dtm);
+                }
+            }
+            if (minLoss != Integer.MAX_VALUE) {
+                return Tablebase.DTM_BASE + minLoss + 1;
+            }
+            return allWins ? Tablebase.DTM_BASE + maxWin + 1 : Tablebase.UNRESOLVED;
+        }
+
+        // Places the entry's pieces on pos; false if the entry is not a reachable position or is
+        // not the canonical index of its position
+        private boolean setUp(int index) {
+            int side = table.decode(index, squares);
+            long occupied = 0;
+            for (int i = 0; i < pieces.length; i++) {
+                long bit = 1L << squares[i];
+                if ((occupied & bit) != 0) {
+                    return false;
+                }
+                if (Position.typeOf(pieces[i]) == Position.PAWN && (squares[i] < 8 || squares[i] >= 56)) {
+                    return false;
+                }
+                occupied |= bit;
+            }
+            System.arraycopy(squares, 0, scratch, 0, pieces.length);
+            if (table.index(scratch, side) != index) {
+                return false; // Same position as a symmetric or permuted entry
+            }
+            long board = pos.occupied();
+            while (board != 0) {
+                pos.removePiece(Long.numberOfTrailingZeros(board));
+                board &= board - 1;
+            }
+            for (int i = 0; i < pieces.length; i++) {
+                pos.putPiece(squares[i], pieces[i]);
+            }
+            pos.setState(side, 0, Position.NO_SQUARE, 0, 1);
+            return !pos.isInCheck(side ^ 1);
+        }
+
+        // Marks every position from which the side that just moved could have reached this one
+        // with a move that stays in the table (no capture, no promotion)
+        private void markPredecessors(int index) {
+            int side = table.decode(index, squares);
+            int mover = side ^ 1;
+            long occupied = 0;
+            for (int i = 0; i < pieces.length; i++) {
+                occupied |= 1L << squares[i];
+            }
+            for (int i = 0; i < pieces.length; i++) {
+                int piece = pieces[i];
+                if (Position.colorOf(piece) != mover) {
+                    continue;
+                }
+                int sq = squares[i];
+                long origins;
+                switch (Position.typeOf(piece)) {
+                    case Position.PAWN:
+                        origins = pawnOrigins(sq, mover, occupied);
+                        break;
+                    case Position.KNIGHT:
+                        origins = Bitboards.knightAttacks(sq);
+                        break;
+                    case Position.BISHOP:
+                        origins = Bitboards.bishopAttacks(sq, occupied);
+                        break;
+                    case Position.ROOK:
+                        origins = Bitboards.rookAttacks(sq, occupied);
+                        break;
+                    case Position.QUEEN:
+                        origins = Bitboards.queenAttacks(sq, occupied);
+                        break;
+                    default:
+                        origins = Bitboards.kingAttacks(sq);
+                        break;
+                }
+                origins &= ~occupied;
+                while (origins != 0) {
+                    System.arraycopy(squares, 0, scratch, 0, pieces.length);
+                    scratch[i] = Long.numberOfTrailingZeros(origins);
+                    run.nextCandidates[table.index(scratch, mover)] = 1;
+                    origins &= origins - 1;
+                }
+            }
+        }
+
+        private long pawnOrigins(int sq, int color, long occupied) {
+            int back = color == Position.WHITE ? -8 : 8;
+            int rank = sq >>> 3;
+            long origins = 0;
+            int single = sq + back;
+            if (color == Position.WHITE ? rank >= 2 : rank <= 5) {
+                origins |= 1L << single;
+            }
+            boolean doublePushRank = color == Position.WHITE ? rank == 3 : rank == 4;
+            if (doublePushRank && (occupied & (1L << single)) == 0) {
+                origins |= 1L << (single + back);
+            }
+            return origins;
+        }
+    }
+}
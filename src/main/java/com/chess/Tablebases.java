@@ -0,0 +1,291 @@
+package com.chess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+// Endgame tablebases for up to MAX_PIECES pieces, kings included: exact win/draw/loss and distance
+// to mate for any position whose table is in the directory. Tables are opened (memory-mapped) the
+// first time a position with their material is probed. Thread-safe.
+public class Tablebases {
+    public static final int MAX_PIECES = 4;
+
+    public static final int WIN = 1;
+    public static final int DRAW = 0;
+    public static final int LOSS = -1;
+    public static final int UNKNOWN = -2;
+
+    private static final String ORDER = "KQRBNP";
+    private static final int[] VALUES = {0, 9, 5, 3, 3, 1};
+    private static final Entry MISSING = new Entry(null, false);
+
+    private final Path directory;
+    private final ConcurrentHashMap<Long, Entry> tables = new ConcurrentHashMap<>();
+
+    public Tablebases(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Result for the side to move: WIN, DRAW, LOSS, or UNKNOWN without a table for the position
+    public int probeWdl(Position pos) {
+        int code = probeCode(pos);
+        if (code < Tablebase.DRAW_CODE) {
+            return UNKNOWN;
+        }
+        if (code == Tablebase.DRAW_CODE) {
+            return DRAW;
+        }
+        return (code - Tablebase.DTM_BASE) % 2 == 0 ? LOSS : WIN;
+    }
+
+    // Plies to mate with best play (0 when the side to move is mated), or -1 for draws and
+    // positions without a table
+    public int probeDtm(Position pos) {
+        int code = probeCode(pos);
+        return code >= Tablebase.DTM_BASE ? code - Tablebase.DTM_BASE : -1;
+    }
+
+    // The legal move that wins fastest, loses slowest or keeps the draw, or Move.NONE without a table
+    public int bestMove(Position pos) {
+        if (probeCode(pos) < Tablebase.DRAW_CODE) {
+            return Move.NONE;
+        }
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(pos, moves);
+        int best = Move.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < moves.size(); i++) {
+            pos.makeMove(moves.get(i));
+            int rank = rank(probeCode(pos));
+            pos.unmakeMove();
+            if (rank > bestRank) {
+                best = moves.get(i);
+                bestRank = rank;
+            }
+        }
+        return best;
+    }
+
+    // Orders a reply's result code from the mover's point of view: fast wins first, slow losses last
+    private static int rank(int code) {
+        if (code >= Tablebase.DTM_BASE) {
+            int dtm = code - Tablebase.DTM_BASE;
+            return dtm % 2 == 0 ? 1000 - dtm : -1000 + dtm;
+        }
+        return code == Tablebase.DRAW_CODE ? 0 : -2000;
+    }
+
+    // Result code (see Tablebase) of any position, or INVALID without a table
+    int probeCode(Position pos) {
+        if (Long.bitCount(pos.occupied()) > MAX_PIECES || pos.castlingRights() != 0) {
+            return Tablebase.INVALID;
+        }
+        if (pos.epSquare() != Position.NO_SQUARE && hasEpCapture(pos)) {
+            return expand(pos); // Tables hold positions without en passant rights
+        }
+        long material = pos.materialKey();
+        Entry entry = tables.get(material);
+        if (entry == null) {
+            entry = load(material);
+        }
+        if (entry.table == null) {
+            return Tablebase.INVALID;
+        }
+        return entry.table.code(entry.table.index(pos, entry.flip, new int[MAX_PIECES]));
+    }
+
+    // Combines the results after each legal move into the result of this position
+    private int expand(Position pos) {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(pos, moves);
+        int best = Integer.MIN_VALUE;
+        int bestCode = Tablebase.INVALID;
+        for (int i = 0; i < moves.size(); i++) {
+            pos.makeMove(moves.get(i));
+            int code = probeCode(pos);
+            pos.unmakeMove();
+            if (code < Tablebase.DRAW_CODE) {
+                return Tablebase.INVALID;
+            }
+            if (rank(code) > best) {
+                best = rank(code);
+                bestCode = code;
+            }
+        }
+        if (moves.isEmpty()) {
+            return pos.isInCheck(pos.sideToMove()) ? Tablebase.DTM_BASE : Tablebase.DRAW_CODE;
+        }
+        return bestCode >= Tablebase.DTM_BASE ? bestCode + 1 : bestCode;
+    }
+
+    static boolean hasEpCapture(Position pos) {
+        int us = pos.sideToMove();
+        return (pos.pieces(us, Position.PAWN) & Bitboards.pawnAttacks(us ^ 1, pos.epSquare())) != 0;
+    }
+
+    // Piece counts packed in 4-bit fields, one per piece code, as in Position.materialKey
+    static long materialKey(int[] pieces) {
+        long key = 0;
+        for (int piece : pieces) {
+            key += 1L << (4 * piece);
+        }
+        return key;
+    }
+
+    // Opens (or registers as missing) the table for a material key and both of its color orientations
+    private synchronized Entry load(long material) {
+        Entry entry = tables.get(material);
+        if (entry != null) {
+            return entry;
+        }
+        String signature = signature(material);
+        long canonical = materialKey(Tablebase.piecesOf(signature));
+        Path file = directory.resolve(signature + ".tb");
+        Tablebase table = null;
+        if (Files.isRegularFile(file)) {
+            try {
+                table = Tablebase.open(file, signature);
+            } catch (IOException e) {
+                Diagnostics.log(Diagnostics.Level.ERROR, "Could not open tablebase " + file + ": " + e.getMessage());
+            }
+        }
+        register(canonical, table);
+        return tables.get(material);
+    }
+
+    // Makes a table (for example one just generated) visible to probes
+    synchronized void register(long canonical, Tablebase table) {
+        tables.put(canonical, table != null ? new Entry(table, false) : MISSING);
+        long flipped = flipColors(canonical);
+        if (flipped != canonical) {
+            tables.put(flipped, table != null ? new Entry(table, true) : MISSING);
+        }
+    }
+
+    private static long flipColors(long material) {
+        return ((material & 0xFFFFFFL) << 24) | (material >>> 24);
+    }
+
+    // Canonical signature of a material key, stronger side first
+    static String signature(long material) {
+        StringBuilder white = new StringBuilder();
+        StringBuilder black = new StringBuilder();
+        for (int i = 0; i < ORDER.length(); i++) {
+            int type = "PNBRQK".indexOf(ORDER.charAt(i));
+            for (int n = 0; n < ((material >>> (4 * type)) & 15); n++) {
+                white.append(ORDER.charAt(i));
+            }
+            for (int n = 0; n < ((material >>> (4 * (6 + type))) & 15); n++) {
+                black.append(ORDER.charAt(i));
+            }
+        }
+        return canonical(white + "v" + black);
+    }
+
+    // Normalizes a signature such as "KvKQ" or "KRQvK" to "KQvK"
+    public static String canonical(String signature) {
+        int split = signature.indexOf('v');
+        if (split < 0) {
+            throw new IllegalArgumentException("Invalid tablebase signature: " + signature);
+        }
+        String first = sortPieces(signature.substring(0, split));
+        String second = sortPieces(signature.substring(split + 1));
+        return compareSides(first, second) >= 0 ? first + "v" + second : second + "v" + first;
+    }
+
+    private static String sortPieces(String side) {
+        char[] pieces = side.toCharArray();
+        for (char c : pieces) {
+            if (ORDER.indexOf(c) < 0) {
+                throw new IllegalArgumentException("Invalid piece in tablebase signature: " + c);
+            }
+        }
+        java.util.Arrays.sort(pieces);
+        StringBuilder sorted = new StringBuilder();
+        for (int i = 0; i < ORDER.length(); i++) {
+            for (char c : pieces) {
+                if (c == ORDER.charAt(i)) {
+                    sorted.append(c);
+                }
+            }
+        }
+        return sorted.toString();
+    }
+
+    // More pieces, then more material, then the stronger piece first
+    private static int compareSides(String a, String b) {
+        if (a.length() != b.length()) {
+            return a.length() - b.length();
+        }
+        int valueA = 0;
+        int valueB = 0;
+        for (int i = 0; i < a.length(); i++) {
+            valueA += VALUES[ORDER.indexOf(a.charAt(i))];
+            valueB += VALUES[ORDER.indexOf(b.charAt(i))];
+        }
+        if (valueA != valueB) {
+            return valueA - valueB;
+        }
+        for (int i = 0; i < a.length(); i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return ORDER.indexOf(b.charAt(i)) - ORDER.indexOf(a.charAt(i));
+            }
+        }
+        return 0;
+    }
+
+    private static final class Entry {
+        final Tablebase table;
+        final boolean flip;
+
+        Entry(Tablebase table, boolean flip) {
+            this.table = table;
+            this.flip = flip;
+        }
+    }
+
+    // Usage: Tablebases generate dir KQvK KRvK ... [threads]  |  Tablebases probe dir fen
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && args[0].equals("generate")) {
+            if (!Diagnostics.isEnabled(Diagnostics.Level.INFO)) {
+                Diagnostics.setLevel(Diagnostics.Level.INFO); // Report each table as it is written
+            }
+            Tablebases tablebases = new Tablebases(Paths.get(args[1]));
+            Files.createDirectories(tablebases.getDirectory());
+            int last = args.length;
+            int threads = Runtime.getRuntime().availableProcessors();
+            if (args[last - 1].matches("\\d+")) {
+                threads = Integer.parseInt(args[--last]);
+            }
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            TablebaseGenerator generator = new TablebaseGenerator(tablebases, pool);
+            for (int i = 2; i < last; i++) {
+                generator.generate(args[i]);
+            }
+            pool.shutdown();
+        } else if (args.length == 3 && args[0].equals("probe")) {
+            Tablebases tablebases = new Tablebases(Paths.get(args[1]));
+            Position pos = Position.fromFen(args[2]);
+            int wdl = tablebases.probeWdl(pos);
+            String[] names = {"loss", "draw", "win"};
+            if (wdl == UNKNOWN) {
+                System.out.println("No table for this position");
+            } else {
+                int best = tablebases.bestMove(pos);
+                System.out.printf("%s%s, best move %s%n", names[wdl + 1],
+                    wdl == DRAW ? "" : " (mate in " + tablebases.probeDtm(pos) + " plies)",
+                    best == Move.NONE ? "-" : San.toSan(pos, best));
+            }
+        } else {
+            System.err.println("Usage: Tablebases generate dir signature... [threads] | Tablebases probe dir fen");
+            System.exit(2);
+        }
+    }
+}
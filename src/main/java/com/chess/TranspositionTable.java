@@ -0,0 +1,176 @@
+package com.chess;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed-size transposition table shared by search threads without locks. Each entry is two longs
+// in one flat long[]: the key XOR-ed with the data, and the data itself. A reader only trusts an
+// entry whose two halves XOR back to its key, so a torn write from another thread reads as a miss
+// instead of a wrong hit (lockless hashing). Four entries form a 64-byte bucket.
+public class TranspositionTable {
+    public static final int BOUND_NONE = 0;
+    public static final int BOUND_UPPER = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_EXACT = 3;
+
+    private static final int ENTRY_LONGS = 2;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_LONGS = ENTRY_LONGS * BUCKET_ENTRIES;
+    private static final int GENERATION_MASK = 0x3F;
+
+    private final long[] table;
+    private final int bucketMask;
+    private volatile int generation;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder overwrites = new LongAdder();
+
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB: " + megabytes);
+        }
+        long buckets = ((long) megabytes << 20) / (BUCKET_LONGS * Long.BYTES);
+        // Round down to a power of two so the bucket index is a mask, capped by the array limit
+        int bucketCount = (int) Math.min(Long.highestOneBit(buckets), 1 << 27);
+        table = new long[bucketCount * BUCKET_LONGS];
+        bucketMask = bucketCount - 1;
+    }
+
+    // Data layout: move 0-15, score 16-31, depth 32-39, bound 40-41, generation 42-47
+    public static long pack(int move, int score, int depth, int bound, int generation) {
+        return (move & 0xFFFFL)
+            | ((score & 0xFFFFL) << 16)
+            | ((long) (depth & 0xFF) << 32)
+            | ((long) (bound & 3) << 40)
+            | ((long) (generation & GENERATION_MASK) << 42);
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> 40) & 3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> 42) & GENERATION_MASK);
+    }
+
+    // Returns the packed data stored for the key, or 0 when there is no verified entry
+    public long probe(long key) {
+        probes.increment();
+        int base = bucketIndex(key);
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            int slot = base + i * ENTRY_LONGS;
+            long data = table[slot + 1];
+            if ((table[slot] ^ data) == key && bound(data) != BOUND_NONE) {
+                hits.increment();
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        stores.increment();
+        int currentGeneration = generation;
+        int base = bucketIndex(key);
+        int replace = base;
+        int worstValue = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            int slot = base + i * ENTRY_LONGS;
+            long data = table[slot + 1];
+            if ((table[slot] ^ data) == key) {
+                // Same position: keep the old best move if the new result has none
+                if (move == Move.NONE) {
+                    move = move(data);
+                }
+                replace = slot;
+                break;
+            }
+            if (bound(data) == BOUND_NONE) {
+                replace = slot;
+                break;
+            }
+            // Replacement policy: prefer slots from older searches, then shallower results
+            int age = (currentGeneration - generation(data)) & GENERATION_MASK;
+            int value = depth(data) - 8 * age;
+            if (value < worstValue) {
+                worstValue = value;
+                replace = slot;
+            }
+        }
+        long old = table[replace + 1];
+        if (bound(old) != BOUND_NONE && (table[replace] ^ old) != key) {
+            overwrites.increment();
+        }
+        long data = pack(move, score, depth, bound, currentGeneration);
+        table[replace] = key ^ data;
+        table[replace + 1] = data;
+    }
+
+    private int bucketIndex(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * BUCKET_LONGS;
+    }
+
+    // Call once per new search so entries from earlier searches age out first
+    public void newSearch() {
+        generation = (generation + 1) & GENERATION_MASK;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(table, 0L);
+        probes.reset();
+        hits.reset();
+        stores.reset();
+        overwrites.reset();
+    }
+
+    public int sizeMegabytes() {
+        return (int) (((long) table.length * Long.BYTES) >> 20);
+    }
+
+    public long probes() {
+        return probes.sum();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long stores() {
+        return stores.sum();
+    }
+
+    public long overwrites() {
+        return overwrites.sum();
+    }
+
+    public double hitRate() {
+        long probeCount = probes.sum();
+        return probeCount == 0 ? 0.0 : (double) hits.sum() / probeCount;
+    }
+
+    // Permille of sampled entries written during the current search
+    public int hashfull() {
+        int sampled = Math.min(1000 / BUCKET_ENTRIES, bucketMask + 1) * BUCKET_ENTRIES;
+        int used = 0;
+        for (int i = 0; i < sampled; i++) {
+            long data = table[i * ENTRY_LONGS + 1];
+            if (bound(data) != BOUND_NONE && generation(data) == generation) {
+                used++;
+            }
+        }
+        return used * 1000 / sampled;
+    }
+}
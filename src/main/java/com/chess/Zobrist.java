@@ -0,0 +1,39 @@
+package com.chess;
+
+import java.util.Random;
+
+// Random keys for 64-bit Zobrist position hashing. The seed is fixed so keys are stable across runs.
+public final class Zobrist {
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long[] CASTLING = new long[16];
+    static final long[] EP_FILE = new long[8];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        Random random = new Random(0x5EED_C0DEL);
+        for (int piece = 0; piece < 12; piece++) {
+            for (int sq = 0; sq < 64; sq++) {
+                PIECE_SQUARE[piece][sq] = random.nextLong();
+            }
+        }
+        // Combinations of rights are the XOR of the single rights, so any change is a single XOR
+        long[] single = new long[4];
+        for (int i = 0; i < 4; i++) {
+            single[i] = random.nextLong();
+        }
+        for (int rights = 0; rights < 16; rights++) {
+            for (int i = 0; i < 4; i++) {
+                if ((rights & (1 << i)) != 0) {
+                    CASTLING[rights] ^= single[i];
+                }
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            EP_FILE[file] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+}
@@ -0,0 +1,109 @@
+package com.chess;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GameArchiveTest {
+    // 64 KB segments, so a few thousand games cross many segment boundaries
+    private static final int SEGMENT_BITS = 16;
+    private static final String[] RESULTS = {"1-0", "0-1", "1/2-1/2", "*"};
+    private static final String CUSTOM_START = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void gamesReadBackAcrossSegments() throws IOException {
+        Random random = new Random(18);
+        List<Position> starts = new ArrayList<>();
+        List<int[]> games = new ArrayList<>();
+        Path base = directory.resolve("games");
+        try (GameArchive archive = GameArchive.open(base, SEGMENT_BITS)) {
+            for (int i = 0; i < 3000; i++) {
+                Position start = i % 7 == 0 ? Position.fromFen(CUSTOM_START) : Position.startPosition();
+                int[] moves = randomGame(start, random, 1 + random.nextInt(160));
+                assertEquals(i, archive.append(start, moves, RESULTS[i & 3]));
+                starts.add(start);
+                games.add(moves);
+            }
+            // Reads of unflushed games flush first
+            assertArrayEquals(games.get(2999), archive.moves(2999));
+        }
+        assertTrue(Files.size(directory.resolve("games.gam")) > 4L << SEGMENT_BITS);
+
+        try (GameArchive archive = GameArchive.open(base, SEGMENT_BITS)) {
+            assertEquals(games.size(), archive.size());
+            for (int i = 0; i < games.size(); i++) {
+                assertArrayEquals(games.get(i), archive.moves(i), "game " + i);
+                assertEquals(RESULTS[i & 3], archive.result(i));
+                assertEquals(starts.get(i).toFen(), archive.startPosition(i).toFen());
+            }
+        }
+    }
+
+    @Test
+    void importKeepsPgnOrder() throws Exception {
+        Random random = new Random(1018);
+        List<int[]> expected = new ArrayList<>();
+        StringWriter pgn = new StringWriter();
+        try (PgnWriter writer = new PgnWriter(pgn)) {
+            for (int i = 0; i < 500; i++) {
+                Map<String, String> tags = new LinkedHashMap<>();
+                tags.put("Event", "Game " + i);
+                Position start = Position.startPosition();
+                int[] moves = randomGame(start, random, 1 + random.nextInt(120));
+                writer.writeGame(tags, start, moves, "*");
+                expected.add(moves);
+                if (i % 50 == 0) {
+                    // An invalid game is skipped without shifting the numbers of the others
+                    pgn.write("[Event \"Invalid\"]\n\n1. e4 e5 2. Ke3 *\n\n");
+                }
+            }
+        }
+
+        Path base = directory.resolve("import");
+        try (GameArchive archive = GameArchive.open(base, SEGMENT_BITS);
+             PgnReader reader = new PgnReader(new StringReader(pgn.toString()))) {
+            PgnImport importer = GameArchive.importGames(reader, archive);
+            assertEquals(10, importer.getInvalidGames());
+            assertEquals(expected.size(), archive.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertArrayEquals(expected.get(i), archive.moves(i), "game " + i);
+            }
+        }
+    }
+
+    // Legal moves picked at random from start, which is left unchanged
+    private static int[] randomGame(Position start, Random random, int maxPlies) {
+        Position pos = start.copy();
+        MoveList moves = new MoveList();
+        int[] game = new int[maxPlies];
+        int plies = 0;
+        while (plies < maxPlies) {
+            moves.clear();
+            MoveGenerator.generateLegal(pos, moves);
+            if (moves.isEmpty()) {
+                break;
+            }
+            game[plies] = moves.get(random.nextInt(moves.size()));
+            pos.makeMove(game[plies++]);
+        }
+        return Arrays.copyOf(game, plies);
+    }
+}
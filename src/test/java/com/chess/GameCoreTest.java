@@ -0,0 +1,136 @@
+package com.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class GameCoreTest {
+    private static final String SHUFFLE = "Nf3 Nf6 Ng1 Ng8 Nf3 Nf6 Ng1";
+
+    @Test
+    void knightShufflesRepeatThreeTimes() {
+        GameCore core = new GameCore();
+        play(core, "Nf3 Nf6 Ng1 Ng8");
+        assertEquals(1, core.getPosition().repetitions());
+        assertEquals(GameCore.Status.ONGOING, core.status());
+        play(core, "Nf3 Nf6 Ng1");
+        assertEquals(GameCore.Status.ONGOING, core.status());
+        play(core, "Ng8");
+        assertEquals(2, core.getPosition().repetitions());
+        assertEquals(GameCore.Status.THREEFOLD_REPETITION, core.status());
+        assertEquals("1/2-1/2", core.getResult());
+
+        core.undo();
+        assertEquals(GameCore.Status.ONGOING, core.status());
+    }
+
+    // A pawn move in between makes the earlier positions unreachable
+    @Test
+    void irreversibleMoveEndsRepetition() {
+        GameCore core = new GameCore();
+        play(core, "Nf3 Nf6 Ng1 Ng8 e3 e6 Nf3 Nf6 Ng1 Ng8 Nf3 Nf6 Ng1");
+        assertEquals(GameCore.Status.ONGOING, core.status());
+        play(core, "Ng8");
+        assertEquals(GameCore.Status.THREEFOLD_REPETITION, core.status());
+    }
+
+    // Positions the engine searches are copies or snapshots of the game; they keep its history
+    @Test
+    void repetitionSurvivesCopiesAndSnapshots() {
+        GameCore core = new GameCore();
+        play(core, SHUFFLE);
+        Position live = core.getPosition();
+
+        Position copied = new Position();
+        copied.copyFrom(live);
+        Position[] positions = {live.copy(), copied, core.snapshot().toPosition(), live.snapshot().toPosition().copy()};
+        for (Position pos : positions) {
+            assertEquals(1, pos.repetitions());
+            pos.makeMove(San.parse(pos, "Ng8"));
+            assertEquals(2, pos.repetitions());
+            assertEquals(GameCore.Status.THREEFOLD_REPETITION, new GameCore(pos).status());
+        }
+
+        int ng8 = San.parse(live, "Ng8");
+        assertEquals(2, core.snapshot().play(ng8).toPosition().repetitions());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        // Clock before the move, move, status after it
+        "98, Ra2, ONGOING",
+        "99, Ra2, FIFTY_MOVE_RULE",
+        "99, e3, ONGOING",
+        "99, Rxa7, ONGOING",
+    })
+    void fiftyMoveRule(int clock, String move, GameCore.Status expected) {
+        GameCore core = new GameCore();
+        core.load("4k3/p7/8/8/8/8/4P3/R3K3 w - - " + clock + " 80");
+        play(core, move);
+        assertEquals(expected, core.status());
+    }
+
+    // Mate on the hundredth half-move still counts
+    @Test
+    void checkmateBeatsFiftyMoveRule() {
+        GameCore core = new GameCore();
+        core.load("6k1/5ppp/8/8/8/8/8/R5K1 w - - 99 80");
+        play(core, "Ra8#");
+        assertEquals(100, core.getPosition().halfmoveClock());
+        assertEquals(GameCore.Status.CHECKMATE, core.status());
+        assertEquals("1-0", core.getResult());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "4k3/8/8/8/8/8/8/4K3 w - - 0 1, INSUFFICIENT_MATERIAL",
+        "4k3/8/8/8/8/8/8/1N2K3 w - - 0 1, INSUFFICIENT_MATERIAL",
+        "4k3/8/8/8/8/8/8/2B1K3 w - - 0 1, INSUFFICIENT_MATERIAL",
+        // Bishops on squares of one color, on either side, can never mate
+        "4k3/8/8/8/8/2b5/8/B3K3 w - - 0 1, INSUFFICIENT_MATERIAL",
+        "4k3/8/8/8/8/2B5/8/B3K3 w - - 0 1, INSUFFICIENT_MATERIAL",
+        // Opposite-colored bishops can
+        "4k3/8/8/8/8/2b5/8/1B2K3 w - - 0 1, ONGOING",
+        "4k3/8/8/8/8/8/8/1NB1K3 w - - 0 1, ONGOING",
+        "4k3/8/8/8/8/8/8/1NN1K3 w - - 0 1, ONGOING",
+        "4k3/8/8/8/8/8/4P3/4K3 w - - 0 1, ONGOING",
+        "4k3/8/8/8/8/8/8/R3K3 w - - 0 1, ONGOING",
+    })
+    void insufficientMaterial(String fen, GameCore.Status expected) {
+        GameCore core = new GameCore();
+        core.load(fen);
+        assertEquals(expected, core.status());
+        assertEquals(expected != GameCore.Status.ONGOING, core.isDraw());
+    }
+
+    @Test
+    void startPositionIsKeptWithoutRewinding() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        GameCore core = new GameCore();
+        core.load(fen);
+        play(core, "O-O Nxe4");
+        String current = core.getPosition().toFen();
+        assertEquals(fen, core.getStartPosition().toFen());
+        assertEquals(current, core.getPosition().toFen());
+        assertEquals(2, core.plyCount());
+
+        // An invalid FEN leaves the start position alone too
+        assertThrows(IllegalArgumentException.class, () -> core.load("8/8/8 w - - 0 1"));
+        assertEquals(fen, core.getStartPosition().toFen());
+
+        Position played = Position.startPosition();
+        played.makeMove(San.parse(played, "e4"));
+        assertEquals(Position.startPosition().toFen(), new GameCore(played).getStartPosition().toFen());
+        assertEquals(1, played.ply());
+    }
+
+    private static void play(GameCore core, String moves) {
+        for (String san : moves.split(" ")) {
+            assertTrue(core.play(San.parse(core.getPosition(), san)), san);
+        }
+    }
+}
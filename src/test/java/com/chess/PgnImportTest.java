@@ -0,0 +1,31 @@
+package com.chess;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class PgnImportTest {
+    // An error from the consumer stops the import and reaches the caller instead of leaving the
+    // reader blocked on a queue that no worker drains
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void consumerErrorStopsImport() throws Exception {
+        StringBuilder pgn = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            pgn.append("[Event \"Game ").append(i).append("\"]\n\n1. e4 e5 2. Nf3 Nc6 *\n\n");
+        }
+        Error error = new Error("consumer failed");
+        PgnImport importer = new PgnImport(2);
+        try (PgnReader reader = new PgnReader(new StringReader(pgn.toString()))) {
+            Error thrown = assertThrows(Error.class, () -> importer.run(reader, (game, moves) -> {
+                throw error;
+            }, null));
+            assertSame(error, thrown);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PositionTest {
+    private static final int GAMES_PER_POSITION = 20;
+    // Longer than the undo log's initial capacity, so it has to grow
+    private static final int MAX_PLIES = 300;
+
+    // Random legal games from every perft position: each make/unmake pair, and unwinding a whole
+    // game, restores the key, FEN, attack maps and incremental terms exactly
+    @Test
+    void unmakeRestoresEveryField() {
+        Random random = new Random(24);
+        MoveList moves = new MoveList();
+        for (String fen : Perft.referenceFens()) {
+            for (int game = 0; game < GAMES_PER_POSITION; game++) {
+                Position pos = Position.fromFen(fen);
+                List<State> states = new ArrayList<>();
+                for (int ply = 0; ply < MAX_PLIES; ply++) {
+                    moves.clear();
+                    MoveGenerator.generateLegal(pos, moves);
+                    if (moves.isEmpty()) {
+                        break;
+                    }
+                    State before = new State(pos);
+                    assertEquals(new State(Position.fromFen(before.fen)).attacks, before.attacks, before.fen);
+                    int move = moves.get(random.nextInt(moves.size()));
+
+                    pos.makeMove(move);
+                    pos.unmakeMove();
+                    before.assertRestored(pos, move);
+
+                    states.add(before);
+                    pos.makeMove(move);
+                }
+                for (int ply = states.size() - 1; ply >= 0; ply--) {
+                    int move = pos.lastMove();
+                    pos.unmakeMove();
+                    states.get(ply).assertRestored(pos, move);
+                }
+                assertEquals(0, pos.ply());
+            }
+        }
+    }
+
+    private static final class State {
+        final String fen;
+        final long key;
+        final String attacks;
+        final long materialKey;
+        final int psqt;
+        final int ply;
+
+        State(Position pos) {
+            fen = pos.toFen();
+            key = pos.key();
+            attacks = Long.toHexString(pos.attacks(Position.WHITE)) + "/" + Long.toHexString(pos.attacks(Position.BLACK));
+            materialKey = pos.materialKey();
+            psqt = pos.psqtScore();
+            ply = pos.ply();
+        }
+
+        void assertRestored(Position pos, int move) {
+            State after = new State(pos);
+            String context = fen + " after " + Move.toString(move);
+            assertEquals(fen, after.fen, context);
+            assertEquals(key, after.key, context);
+            assertEquals(attacks, after.attacks, context);
+            assertEquals(materialKey, after.materialKey, context);
+            assertEquals(psqt, after.psqt, context);
+            assertEquals(ply, after.ply, context);
+        }
+    }
+}
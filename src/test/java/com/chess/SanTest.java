@@ -0,0 +1,108 @@
+package com.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class SanTest {
+    // Every legal move of the perft positions and of random games from them writes as a unique
+    // SAN string that parses back to the same move
+    @Test
+    void roundTripsEveryLegalMove() {
+        Random random = new Random(23);
+        MoveList legal = new MoveList();
+        StringBuilder san = new StringBuilder();
+        int checked = 0;
+        for (String fen : Perft.referenceFens()) {
+            for (int game = 0; game < 10; game++) {
+                Position pos = Position.fromFen(fen);
+                for (int ply = 0; ply < 80; ply++) {
+                    legal.clear();
+                    MoveGenerator.generateLegal(pos, legal);
+                    if (legal.isEmpty()) {
+                        break;
+                    }
+                    Set<String> seen = new HashSet<>();
+                    for (int i = 0; i < legal.size(); i++) {
+                        int move = legal.get(i);
+                        san.setLength(0);
+                        San.append(pos, move, legal, san);
+                        String text = san.toString();
+                        assertTrue(seen.add(text), text + " twice in " + pos.toFen());
+                        assertEquals(move, San.parse(pos, text, legal), text + " in " + pos.toFen());
+                        checked++;
+                    }
+                    pos.makeMove(legal.get(random.nextInt(legal.size())));
+                }
+            }
+        }
+        assertTrue(checked > 100_000, "checked " + checked);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        // File, rank, and both file and rank disambiguation
+        "4k3/8/8/8/8/5N2/8/1N2K3 w - - 0 1, b1d2, Nbd2",
+        "4k3/8/8/8/8/5N2/8/1N2K3 w - - 0 1, f3d2, Nfd2",
+        "4k3/8/8/R7/8/8/8/R3K3 w - - 0 1, a1a3, R1a3",
+        "4k3/8/8/R7/8/8/8/R3K3 w - - 0 1, a5a3, R5a3",
+        "8/8/k7/8/4Q2Q/8/8/K6Q w - - 0 1, h4e1, Qh4e1",
+        "8/8/k7/8/4Q2Q/8/8/K6Q w - - 0 1, e4e1, Qee1",
+        "8/8/k7/8/4Q2Q/8/8/K6Q w - - 0 1, h1e1, Q1e1",
+        // Promotions, with check where the new piece gives it
+        "4k3/1P6/8/8/8/8/8/4K3 w - - 0 1, b7b8q, b8=Q+",
+        "4k3/1P6/8/8/8/8/8/4K3 w - - 0 1, b7b8r, b8=R+",
+        "4k3/1P6/8/8/8/8/8/4K3 w - - 0 1, b7b8n, b8=N",
+        "2r1k3/1P6/8/8/8/8/8/4K3 w - - 0 1, b7c8b, bxc8=B",
+        // Castling, captures and mate
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1, e1g1, O-O",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1, e1c1, O-O-O",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1, d5e6, dxe6",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1, e5f7, Nxf7",
+        "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1, a1a8, Ra8#",
+        "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3, e5f6, exf6",
+    })
+    void writesStandardNotation(String fen, String uci, String expected) {
+        Position pos = Position.fromFen(fen);
+        int move = Move.NONE;
+        MoveList legal = new MoveList();
+        MoveGenerator.generateLegal(pos, legal);
+        for (int i = 0; i < legal.size(); i++) {
+            if (Move.toString(legal.get(i)).equals(uci)) {
+                move = legal.get(i);
+            }
+        }
+        assertEquals(expected, San.toSan(pos, move));
+        assertEquals(move, San.parse(pos, expected));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1, Pe4, e4",
+        "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2, Pexd5, exd5",
+        "4k3/1P6/8/8/8/8/8/4K3 w - - 0 1, Pb8=Q, b8=Q",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1, 0-0-0, O-O-O",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1, Ne5xf7!?, Nxf7",
+    })
+    void acceptsVariantNotation(String fen, String variant, String standard) {
+        Position pos = Position.fromFen(fen);
+        assertEquals(San.parse(pos, standard), San.parse(pos, variant));
+    }
+
+    @Test
+    void rejectsAmbiguousAndIllegalMoves() {
+        Position pos = Position.fromFen("4k3/8/8/8/8/5N2/8/1N2K3 w - - 0 1");
+        assertThrows(IllegalArgumentException.class, () -> San.parse(pos, "Nd2"));
+        assertThrows(IllegalArgumentException.class, () -> San.parse(pos, "Nd3"));
+        assertThrows(IllegalArgumentException.class, () -> San.parse(pos, "Pe4"));
+        assertThrows(IllegalArgumentException.class, () -> San.parse(pos, "Xe4"));
+    }
+}
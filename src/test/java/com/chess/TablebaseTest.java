@@ -0,0 +1,185 @@
+package com.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class TablebaseTest {
+    @TempDir
+    Path directory;
+
+    private Tablebases tablebases;
+    private ForkJoinPool pool;
+    private TablebaseGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        tablebases = new Tablebases(directory);
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        generator = new TablebaseGenerator(tablebases, pool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    // Every legal placement of a king and piece against a lone king, either side to move, probes
+    // to the result of an independent solver
+    @ParameterizedTest
+    @ValueSource(strings = {"KQvK", "KRvK"})
+    void probesMatchSolver(String signature) throws IOException {
+        generator.generate(signature);
+        int extra = Position.makePiece(Position.WHITE, "PNBRQK".indexOf(signature.charAt(1)));
+        Solver solver = new Solver(extra);
+        solver.solve();
+
+        Position pos = new Position();
+        int checked = 0;
+        for (int index = 0; index < Solver.SIZE; index++) {
+            if (!solver.place(pos, index)) {
+                continue;
+            }
+            int dtm = solver.dtm[index];
+            int expectedWdl = dtm == Solver.DRAW ? Tablebases.DRAW
+                : dtm % 2 == 1 ? Tablebases.WIN : Tablebases.LOSS;
+            assertEquals(expectedWdl, tablebases.probeWdl(pos), pos.toFen());
+            assertEquals(dtm == Solver.DRAW ? -1 : dtm, tablebases.probeDtm(pos), pos.toFen());
+            checked++;
+        }
+        assertTrue(checked > 100_000, "checked " + checked);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"KQvK, 20", "KRvK, 32", "KPvK, 56", "KBNvK, 66"})
+    void longestMate(String signature, int plies) throws IOException {
+        Tablebase table = generator.generate(signature);
+        int longest = 0;
+        for (int index = 0; index < table.size(); index++) {
+            int code = table.code(index);
+            if (code >= Tablebase.DTM_BASE) {
+                longest = Math.max(longest, code - Tablebase.DTM_BASE);
+            }
+        }
+        assertEquals(plies, longest);
+    }
+
+    // Value iteration over every placement of white king, black king and one white piece,
+    // using nothing but the legal move generator. Captures leave a dead draw.
+    private static final class Solver {
+        static final int SIZE = 2 * 64 * 64 * 64;
+        static final int ILLEGAL = -3;
+        static final int DRAW = -2;
+        static final int UNSOLVED = -1;
+        static final int CAPTURE = -1;
+
+        private final int extra;
+        final int[] dtm = new int[SIZE];
+        // Successors of each position in compressed rows: successors[first[i]..first[i + 1])
+        private final int[] first = new int[SIZE + 1];
+        private int[] successors = new int[1 << 20];
+
+        Solver(int extra) {
+            this.extra = extra;
+        }
+
+        // Index: side to move, white king, black king, extra piece
+        boolean place(Position pos, int index) {
+            int side = index >>> 18;
+            int whiteKing = (index >>> 12) & 63;
+            int blackKing = (index >>> 6) & 63;
+            int piece = index & 63;
+            if (whiteKing == blackKing || whiteKing == piece || blackKing == piece) {
+                return false;
+            }
+            long occupied = pos.occupied();
+            while (occupied != 0) {
+                pos.removePiece(Long.numberOfTrailingZeros(occupied));
+                occupied &= occupied - 1;
+            }
+            pos.putPiece(whiteKing, Position.makePiece(Position.WHITE, Position.KING));
+            pos.putPiece(blackKing, Position.makePiece(Position.BLACK, Position.KING));
+            pos.putPiece(piece, extra);
+            pos.setState(side, 0, Position.NO_SQUARE, 0, 1);
+            return !pos.isInCheck(side ^ 1);
+        }
+
+        private static int indexOf(Position pos) {
+            long others = pos.occupied() & ~pos.pieces(Position.WHITE, Position.KING)
+                & ~pos.pieces(Position.BLACK, Position.KING);
+            return pos.sideToMove() << 18 | pos.kingSquare(Position.WHITE) << 12
+                | pos.kingSquare(Position.BLACK) << 6 | Long.numberOfTrailingZeros(others);
+        }
+
+        void solve() {
+            Position pos = new Position();
+            MoveList moves = new MoveList();
+            int count = 0;
+            for (int index = 0; index < SIZE; index++) {
+                first[index] = count;
+                if (!place(pos, index)) {
+                    dtm[index] = ILLEGAL;
+                    continue;
+                }
+                moves.clear();
+                MoveGenerator.generateLegal(pos, moves);
+                if (moves.isEmpty()) {
+                    dtm[index] = pos.isInCheck(pos.sideToMove()) ? 0 : DRAW;
+                    continue;
+                }
+                dtm[index] = UNSOLVED;
+                for (int i = 0; i < moves.size(); i++) {
+                    pos.makeMove(moves.get(i));
+                    if (count == successors.length) {
+                        successors = Arrays.copyOf(successors, count * 2);
+                    }
+                    successors[count++] = Long.bitCount(pos.occupied()) < 3 ? CAPTURE : indexOf(pos);
+                    pos.unmakeMove();
+                }
+            }
+            first[SIZE] = count;
+
+            // Round d resolves wins in d (odd) or losses in d (even) from round d - 1 alone
+            int idleRounds = 0;
+            for (int d = 1; idleRounds < 2; d++) {
+                int resolved = 0;
+                for (int index = 0; index < SIZE; index++) {
+                    if (dtm[index] == UNSOLVED && resolves(index, d)) {
+                        dtm[index] = d;
+                        resolved++;
+                    }
+                }
+                idleRounds = resolved == 0 ? idleRounds + 1 : 0;
+            }
+            for (int index = 0; index < SIZE; index++) {
+                if (dtm[index] == UNSOLVED) {
+                    dtm[index] = DRAW;
+                }
+            }
+        }
+
+        private boolean resolves(int index, int d) {
+            for (int i = first[index]; i < first[index + 1]; i++) {
+                int reply = successors[i] == CAPTURE ? DRAW : dtm[successors[i]];
+                if (d % 2 == 1 && reply == d - 1) {
+                    return true;
+                }
+                if (d % 2 == 0 && (reply < 0 || reply % 2 == 0)) {
+                    return false;
+                }
+            }
+            return d % 2 == 0;
+        }
+    }
+}